@@ -0,0 +1,57 @@
+package com.note.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.note.util.NoteLogUtil;
+import com.note.util.NoteLogUtil.LogLevel;
+import com.note.util.NoteLogUtil.NoteType;
+
+/**
+ * 逐音符日志开销（各日志级别下单次logNoteTranslated的平均耗时，日志文件写入工作目录logs/）
+ * 缓冲满时调用方会阻塞等待后台写入，因此FULL级别测得的是持续写盘速率下的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NoteLogBenchmark {
+
+    @Param({"OFF", "SUMMARY", "SAMPLED", "FULL"})
+    public LogLevel level;
+
+    private NoteLogUtil noteLog;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        noteLog = new NoteLogUtil(level);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        noteLog.close();
+    }
+
+    @Benchmark
+    public void logNoteTranslated() {
+        int i = index++;
+        noteLog.logNoteTranslated(i + 1, 100000, NoteType.BLUE, "n" + (i & 1023),
+                i * 0.25, i % 7 - 3, i * 0.25, i % 7, "");
+    }
+}
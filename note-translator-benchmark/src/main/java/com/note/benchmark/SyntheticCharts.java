@@ -0,0 +1,162 @@
+package com.note.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * 合成Sonolus已编译谱面（固定随机种子，结果可复现）
+ * 音符构成参考真实谱面：Tap/Flick为主，夹杂双押（SimLine）、多节点滑键（含连接器）和BPM变更
+ */
+public class SyntheticCharts {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 生成约entityCount个实体的谱面JSON
+     */
+    public static byte[] generate(int entityCount, long seed) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(entityCount * 96);
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("bgmOffset", 0);
+            gen.writeArrayFieldStart("entities");
+            writeEntity(gen, "Initialization", null, -1, 0);
+            writeEntity(gen, "Stage", null, -1, 0);
+            writeBpm(gen, 0, 120);
+
+            int count = 3;
+            int nameId = 0;
+            double beat = 0;
+            while (count < entityCount) {
+                beat += 0.25 * (1 + random.nextInt(2));
+                int roll = random.nextInt(100);
+                if (roll < 1) {
+                    // BPM变更
+                    writeBpm(gen, beat, 100 + random.nextInt(120));
+                    count++;
+                } else if (roll < 46) {
+                    writeEntity(gen, "TapNote", name(nameId++), beat, randomLane(random));
+                    count++;
+                } else if (roll < 61) {
+                    writeEntity(gen, "FlickNote", name(nameId++), beat, randomLane(random));
+                    count++;
+                } else if (roll < 75) {
+                    // 双押：两个音符 + SimLine
+                    String left = name(nameId++);
+                    String right = name(nameId++);
+                    int lane = random.nextInt(4) - 3;
+                    writeEntity(gen, "TapNote", left, beat, lane);
+                    writeEntity(gen, random.nextBoolean() ? "TapNote" : "FlickNote", right, beat, lane + 1 + random.nextInt(3));
+                    writeSimLine(gen, left, right);
+                    count += 3;
+                } else {
+                    // 滑键：起点 + 0~3个中间节点 + 终点，相邻节点之间一个连接器
+                    int ticks = random.nextInt(4);
+                    String first = name(nameId++);
+                    String prev = first;
+                    writeSlideNote(gen, "SlideStartNote", first, beat, randomLane(random), first, null);
+                    count++;
+                    for (int t = 0; t <= ticks; t++) {
+                        beat += 0.5;
+                        String node = name(nameId++);
+                        String archetype = t == ticks ? "SlideEndNote" : "SlideTickNote";
+                        writeSlideNote(gen, archetype, node, beat, randomLane(random), first, prev);
+                        writeConnector(gen, first, prev, node, random.nextBoolean());
+                        prev = node;
+                        count += 2;
+                    }
+                }
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String name(int id) {
+        return Integer.toString(id, 36);
+    }
+
+    private static int randomLane(Random random) {
+        return random.nextInt(7) - 3;
+    }
+
+    private static void writeBpm(JsonGenerator gen, double beat, double bpm) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", "#BPM_CHANGE");
+        gen.writeArrayFieldStart("data");
+        writeValue(gen, "#BEAT", beat);
+        writeValue(gen, "#BPM", bpm);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeEntity(JsonGenerator gen, String archetype, String name, double beat, int lane) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", archetype);
+        if (name != null) gen.writeStringField("name", name);
+        gen.writeArrayFieldStart("data");
+        if (beat >= 0) {
+            writeValue(gen, "#BEAT", beat);
+            writeValue(gen, "lane", lane);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeSimLine(JsonGenerator gen, String left, String right) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", "SimLine");
+        gen.writeArrayFieldStart("data");
+        writeRef(gen, "a", left);
+        writeRef(gen, "b", right);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeSlideNote(JsonGenerator gen, String archetype, String name, double beat, int lane,
+                                       String first, String prev) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", archetype);
+        gen.writeStringField("name", name);
+        gen.writeArrayFieldStart("data");
+        writeValue(gen, "#BEAT", beat);
+        writeValue(gen, "lane", lane);
+        writeRef(gen, "first", first);
+        if (prev != null) writeRef(gen, "prev", prev);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeConnector(JsonGenerator gen, String first, String head, String tail, boolean curved) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", curved ? "CurvedSlideConnector" : "StraightSlideConnector");
+        gen.writeArrayFieldStart("data");
+        writeRef(gen, "first", first);
+        writeRef(gen, "head", head);
+        writeRef(gen, "tail", tail);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator gen, String name, double value) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", name);
+        gen.writeNumberField("value", value);
+        gen.writeEndObject();
+    }
+
+    private static void writeRef(JsonGenerator gen, String name, String ref) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", name);
+        gen.writeStringField("ref", ref);
+        gen.writeEndObject();
+    }
+}
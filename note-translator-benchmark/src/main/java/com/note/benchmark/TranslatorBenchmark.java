@@ -0,0 +1,152 @@
+package com.note.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.note.NoteTranslator;
+import com.note.TranslateOptions;
+import com.note.chart.ChartEntity;
+import com.note.chart.ChartReader;
+import com.note.chart.DevChart;
+import com.note.chart.DevChartWriter;
+import com.note.chart.SlideChainBuilder;
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 转译热路径分阶段基准：解析 / 转换 / 滑键重建 / 输出 / 单文件端到端
+ * 分配速率用 -prof gc 查看（gc.alloc.rate.norm 即每次调用分配的字节数）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int entityCount;
+
+    private final ChartReader reader = new ChartReader();
+    private final SlideChainBuilder slideChainBuilder = new SlideChainBuilder();
+    private final DevChartWriter writer = new DevChartWriter();
+    private NoteTranslator translator;
+    private TranslateOptions options;
+
+    private byte[] chartBytes;
+    private List<ChartEntity> entities;
+    private List<ChartEntity> slideRelated;
+    private DevChart devChart;
+    private Path workDir;
+    private File inputFile;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        chartBytes = SyntheticCharts.generate(entityCount, 42L);
+        entities = new ArrayList<>(entityCount);
+        reader.read(new ByteArrayInputStream(chartBytes), entities::add);
+        slideRelated = new ArrayList<>();
+        for (ChartEntity entity : entities) {
+            if (entity.getKind().isSlide()) {
+                slideRelated.add(entity);
+            }
+        }
+
+        // 日志关闭，日志开销由NoteLogBenchmark单独测量
+        translator = new NoteTranslator(LogLevel.OFF);
+        options = TranslateOptions.DEFAULTS.withLogLevel(LogLevel.OFF);
+        devChart = translator.translateEntities(entities, options);
+
+        workDir = Files.createTempDirectory("note-bench");
+        inputFile = workDir.resolve("chart.json").toFile();
+        Files.write(inputFile.toPath(), chartBytes);
+
+        // 端到端转译每次都会打印完成信息，基准进程内屏蔽标准输出
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        translator.close();
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * 解析：JSON字节 → 紧凑实体
+     */
+    @Benchmark
+    public List<ChartEntity> parse() throws IOException {
+        List<ChartEntity> result = new ArrayList<>(entityCount);
+        reader.read(new ByteArrayInputStream(chartBytes), result::add);
+        return result;
+    }
+
+    /**
+     * 转换：实体 → 开发态中间表示（含滑键重建与微调）
+     */
+    @Benchmark
+    public DevChart transform() {
+        return translator.translateEntities(entities, options);
+    }
+
+    /**
+     * 滑键重建：沿引用图还原滑键节点顺序
+     */
+    @Benchmark
+    public List<List<ChartEntity>> slideAssembly() {
+        return slideChainBuilder.build(slideRelated);
+    }
+
+    /**
+     * 输出：中间表示 → 带缩进JSON（写入空输出流，只计序列化开销）
+     */
+    @Benchmark
+    public void writePretty() throws IOException {
+        writer.write(devChart, OutputStream.nullOutputStream(), true);
+    }
+
+    /**
+     * 输出：中间表示 → 紧凑JSON
+     */
+    @Benchmark
+    public void writeCompact() throws IOException {
+        writer.write(devChart, OutputStream.nullOutputStream(), false);
+    }
+
+    /**
+     * 端到端：translateFile（读文件 + 转换 + 写文件）
+     */
+    @Benchmark
+    public int translateFile() throws Exception {
+        return translator.translateFile(inputFile, workDir.resolve("out").toString(), options);
+    }
+}
@@ -0,0 +1,295 @@
+package com.note;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.note.chart.ChartInput;
+import com.note.chart.DevChart;
+import com.note.util.FileUtil;
+import com.note.util.ThreadUtil;
+import com.note.util.TranslateManifest;
+import com.note.util.TranslateMetrics;
+import com.note.util.TranslateMetrics.FileMetrics;
+
+/**
+ * 批量转译三段流水线：读取（单线程顺序读盘）→ 转换（多线程解析+转译）→ 写出（单线程顺序写盘）
+ * 阶段之间是有界队列，下游跟不上时上游阻塞（背压），同时在内存中的谱面数有上限
+ * 磁盘读写和CPU转换同时进行，总耗时接近两者中较慢的一方，而不是两者之和
+ * 读取来源（文件夹/谱面包）和写出目标（文件夹/谱面包）可以任意组合
+ * 每个谱面的各阶段耗时、字节数随条目在阶段之间传递（FileMetrics），用于生成指标报告
+ * 结束标记由上游阶段自己发出，主线程只等待各阶段完成；任一阶段异常终止（包括Error）时立即停止所有阶段，不会互相阻塞
+ */
+class BatchPipeline {
+    // 队列结束标记
+    private static final ReadItem READ_END = new ReadItem(-1, null, null, null, null);
+    private static final WriteItem WRITE_END = new WriteItem(-1, null, null, null, null);
+
+    /**
+     * 读取来源：按顺序逐个读入谱面（只在读取线程中调用）
+     */
+    interface Source {
+        /**
+         * 谱面总数（谱面包按条目顺序读取，事先未知时返回-1）
+         */
+        int size();
+
+        /**
+         * 读入下一个谱面，没有更多时返回null；单个谱面读取失败时返回带failure的条目，整个来源损坏时抛出异常
+         */
+        SourceItem next() throws IOException;
+    }
+
+    /**
+     * 读入的单个谱面
+     *
+     * @param name    相对名称（文件名或谱面包内的条目路径，决定输出名称和增量清单的键）
+     * @param path    完整路径（日志用）
+     * @param input   已读入内存的内容（读取失败时为null）
+     * @param failure 读取失败原因（成功时为null）
+     */
+    record SourceItem(String name, String path, ChartInput input, RuntimeException failure) {
+    }
+
+    /**
+     * 写出目标（只在写出线程中调用）
+     */
+    interface Sink {
+        /**
+         * @return 写出的字节数
+         */
+        long write(SourceItem item, DevChart chart) throws IOException;
+    }
+
+    /**
+     * 单个谱面的结果：实体数 + 是否因未变更而跳过；failure不为null时表示失败
+     */
+    record Result(String name, int entityCount, boolean skipped, Throwable failure) {
+    }
+
+    // 读取阶段 → 转换阶段：已读入内存的谱面（增量模式附带内容哈希）
+    private record ReadItem(int index, SourceItem source, ChartInput input, String hash, FileMetrics metrics) {
+    }
+
+    // 转换阶段 → 写出阶段：开发态中间表示
+    private record WriteItem(int index, SourceItem source, DevChart chart, String hash, FileMetrics metrics) {
+    }
+
+    private final NoteTranslator translator;
+    private final TranslateOptions options;
+    private final TranslateManifest manifest; // 非增量模式为null
+    private final TranslateMetrics metrics; // 不生成指标报告时为null
+    private final File outputFolder;
+
+    /**
+     * @param manifest     增量清单（null=不做增量判断）
+     * @param metrics      指标收集（null=不生成报告，各阶段仍照常计时，开销可忽略）
+     * @param outputFolder 增量模式下的输出文件夹（判断输出文件是否还在）
+     */
+    BatchPipeline(NoteTranslator translator, TranslateOptions options, TranslateManifest manifest,
+                  TranslateMetrics metrics, File outputFolder) {
+        this.translator = translator;
+        this.options = options;
+        this.manifest = manifest;
+        this.metrics = metrics;
+        this.outputFolder = outputFolder;
+    }
+
+    /**
+     * 运行流水线，阻塞到所有谱面处理完毕
+     *
+     * @param workers        转换阶段线程数（转译器无状态，所有线程共用同一个NoteTranslator）
+     * @param virtualThreads 转换阶段是否使用虚拟线程
+     * @return 按读取顺序排列的结果
+     */
+    List<Result> run(Source source, Sink sink, int workers, boolean virtualThreads) throws InterruptedException {
+        // 结果槽位由读取线程按顺序追加，各阶段按下标填入
+        List<Result> results = Collections.synchronizedList(new ArrayList<>());
+        // 队列容量等于转换线程数：读取阶段最多领先一批，写出阶段最多积压一批
+        BlockingQueue<ReadItem> readQueue = new ArrayBlockingQueue<>(workers);
+        BlockingQueue<WriteItem> writeQueue = new ArrayBlockingQueue<>(workers);
+
+        ExecutorService reader = ThreadUtil.newWorkerPool(1, false, "translate-read");
+        ExecutorService transformers = ThreadUtil.newWorkerPool(workers, virtualThreads, "translate");
+        ExecutorService writer = ThreadUtil.newWorkerPool(1, false, "translate-write");
+        // 三个线程池共用一个完成队列，按完成先后等待，哪个阶段先失败就先发现哪个
+        BlockingQueue<Future<Void>> completed = new LinkedBlockingQueue<>();
+        CompletionService<Void> readTasks = new ExecutorCompletionService<>(reader, completed);
+        CompletionService<Void> transformTasks = new ExecutorCompletionService<>(transformers, completed);
+        CompletionService<Void> writeTasks = new ExecutorCompletionService<>(writer, completed);
+        AtomicInteger runningTransformers = new AtomicInteger(workers);
+        try {
+            readTasks.submit(() -> {
+                readStage(source, readQueue, results);
+                // 读取结束后给每个转换线程各发一个结束标记
+                for (int i = 0; i < workers; i++) {
+                    readQueue.put(READ_END);
+                }
+                return null;
+            });
+            for (int i = 0; i < workers; i++) {
+                transformTasks.submit(() -> {
+                    transformStage(readQueue, writeQueue, results);
+                    // 最后一个结束的转换线程通知写出阶段结束
+                    if (runningTransformers.decrementAndGet() == 0) {
+                        writeQueue.put(WRITE_END);
+                    }
+                    return null;
+                });
+            }
+            writeTasks.submit(() -> {
+                writeStage(sink, writeQueue, results);
+                return null;
+            });
+
+            for (int i = 0; i < workers + 2; i++) {
+                await(completed.take());
+            }
+        } finally {
+            // 正常结束时各线程已空闲；异常终止时中断仍阻塞在队列上的阶段
+            reader.shutdownNow();
+            transformers.shutdownNow();
+            writer.shutdownNow();
+        }
+        return results;
+    }
+
+    // ------------------------------ 读取阶段：顺序读入谱面，增量模式下计算哈希并跳过未变更的谱面 ------------------------------
+    private void readStage(Source source, BlockingQueue<ReadItem> readQueue, List<Result> results)
+            throws IOException, InterruptedException {
+        int total = source.size();
+        String settings = options.settingsKey();
+        // 输出名称（不区分大小写）→ 第一个使用它的谱面：a.json、a.json.gz、a会写出同一个a.json，后出现的记为失败，不覆盖前一个
+        Map<String, String> outputNames = new HashMap<>();
+        SourceItem item;
+        long start = System.nanoTime();
+        while ((item = source.next()) != null) {
+            long readNanos = System.nanoTime() - start;
+            int index = results.size();
+            results.add(null);
+            String progress = total < 0 ? Integer.toString(index + 1) : (index + 1) + "/" + total;
+            FileMetrics fileMetrics = metrics != null ? metrics.add(item.name()) : new FileMetrics(item.name());
+            fileMetrics.readNanos = readNanos;
+            if (item.failure() != null) {
+                fileMetrics.error = item.failure().getMessage();
+                results.set(index, new Result(item.name(), 0, false, item.failure()));
+                start = System.nanoTime();
+                continue;
+            }
+
+            ChartInput input = item.input();
+            String outputName = FileUtil.getOutputFileName(item.name());
+            String previous = options.validateOnly() ? null : outputNames.putIfAbsent(outputName.toLowerCase(Locale.ROOT), item.name());
+            if (previous != null) {
+                input.close();
+                RuntimeException failure = new RuntimeException("输出名称冲突：与" + previous + "同为" + outputName + "，已跳过");
+                fileMetrics.error = failure.getMessage();
+                results.set(index, new Result(item.name(), 0, false, failure));
+                start = System.nanoTime();
+                continue;
+            }
+            fileMetrics.bytesIn = input.length();
+            fileMetrics.sampleHeap();
+            String hash = null;
+            if (manifest != null) {
+                // 增量模式：哈希和转译共用同一次读入的内容，未变更的谱面不进入后续阶段
+                hash = TranslateManifest.hash(input.contents());
+                TranslateManifest.Entry upToDate = manifest.findUpToDate(item.name(), hash, settings, outputFolder);
+                if (upToDate != null) {
+                    input.close();
+                    fileMetrics.skipped = true;
+                    fileMetrics.entityCount = upToDate.entityCount;
+                    results.set(index, new Result(item.name(), upToDate.entityCount, true, null));
+                    System.out.printf("进度：%s | 未变更，跳过：%s%n", progress, item.name());
+                    start = System.nanoTime();
+                    continue;
+                }
+            }
+            System.out.printf("进度：%s | 处理：%s...%n", progress, item.name());
+            try {
+                readQueue.put(new ReadItem(index, item, input, hash, fileMetrics));
+            } catch (InterruptedException e) {
+                input.close();
+                throw e;
+            }
+            // 队列满时的等待不计入读取耗时
+            start = System.nanoTime();
+        }
+    }
+
+    // ------------------------------ 转换阶段：解析 + 校验 + 转译（CPU密集，多线程） ------------------------------
+    private void transformStage(BlockingQueue<ReadItem> readQueue, BlockingQueue<WriteItem> writeQueue,
+                                List<Result> results) throws InterruptedException {
+        while (true) {
+            ReadItem item = readQueue.take();
+            if (item == READ_END) {
+                return;
+            }
+            SourceItem source = item.source();
+            WriteItem output;
+            try (ChartInput input = item.input()) {
+                DevChart chart = translator.transform(source.path(), source.name(), input, options, item.metrics());
+                if (chart == null) {
+                    // 只校验模式：校验通过，不进入写出阶段
+                    results.set(item.index(), new Result(source.name(), item.metrics().entityCount, false, null));
+                    continue;
+                }
+                output = new WriteItem(item.index(), source, chart, item.hash(), item.metrics());
+            } catch (RuntimeException e) {
+                item.metrics().error = e.getMessage();
+                results.set(item.index(), new Result(source.name(), 0, false, e));
+                continue;
+            }
+            writeQueue.put(output);
+        }
+    }
+
+    // ------------------------------ 写出阶段：顺序写出转译结果并记录增量清单 ------------------------------
+    private void writeStage(Sink sink, BlockingQueue<WriteItem> writeQueue, List<Result> results) throws InterruptedException {
+        while (true) {
+            WriteItem item = writeQueue.take();
+            if (item == WRITE_END) {
+                return;
+            }
+            String name = item.source().name();
+            FileMetrics fileMetrics = item.metrics();
+            try {
+                long start = System.nanoTime();
+                fileMetrics.bytesOut = sink.write(item.source(), item.chart());
+                fileMetrics.writeNanos = System.nanoTime() - start;
+                fileMetrics.sampleHeap();
+                if (manifest != null) {
+                    manifest.record(name, item.hash(), options.settingsKey(),
+                            FileUtil.getOutputFileName(name), fileMetrics.entityCount);
+                }
+                results.set(item.index(), new Result(name, fileMetrics.entityCount, false, null));
+            } catch (Exception e) {
+                fileMetrics.error = e.getMessage();
+                results.set(item.index(), new Result(name, 0, false, e));
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：取已完成阶段的结果（单个谱面的异常已记入结果，这里只会是阶段本身异常终止，如OutOfMemoryError） ------------------------------
+    private void await(Future<?> task) throws InterruptedException {
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("批量流水线异常终止：" + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
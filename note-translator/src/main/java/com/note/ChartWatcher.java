@@ -0,0 +1,132 @@
+package com.note;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.note.util.FileUtil;
+
+/**
+ * 监听模式：常驻JVM监听输入文件夹，谱面新增或修改后自动转译
+ * 同一文件的连续写入事件做防抖，最后一次写入后等待debounceMillis再转译，避免读到写了一半的文件
+ */
+public class ChartWatcher implements AutoCloseable {
+    private final NoteTranslator translator;
+    private final TranslateOptions options;
+    private final Path inputDir;
+    private final String outputDir;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    // 单线程执行转译，保证同一文件不会被并发转译
+    private final ScheduledExecutorService scheduler;
+    private final Map<Path, DebouncedTask> pending = new ConcurrentHashMap<>();
+
+    public ChartWatcher(NoteTranslator translator, TranslateOptions options,
+                        String inputDir, String outputDir, long debounceMillis) throws IOException {
+        this.translator = translator;
+        // 常驻模式逐个文件转译，每次都覆盖指标报告没有意义，不生成
+        this.options = options.withMetrics(false);
+        this.inputDir = new File(inputDir).toPath().toAbsolutePath();
+        this.outputDir = outputDir;
+        this.debounceMillis = debounceMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "chart-watch-translate");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inputDir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * 阻塞监听，直到close()被调用、线程被中断或输入文件夹不可访问
+     *
+     * @return false=输入文件夹已不可访问（被删除、改名或卸载）导致监听异常结束
+     */
+    public boolean run() {
+        FileUtil.ensureFolderExists(outputDir);
+        System.out.printf("监听模式已启动 | 输入：%s → 输出：%s | 防抖：%dms（Ctrl+C退出）%n",
+                inputDir, new File(outputDir).getAbsolutePath(), debounceMillis);
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    schedule(inputDir.resolve((Path) event.context()));
+                }
+                if (!key.reset()) {
+                    System.err.println("输入文件夹已不可访问，监听结束：" + inputDir);
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close()触发，正常退出
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        scheduler.shutdownNow();
+    }
+
+    // ------------------------------ 辅助：防抖调度（同一文件的新事件取消上一次未执行的转译） ------------------------------
+    private void schedule(Path path) {
+        DebouncedTask task = new DebouncedTask(path);
+        task.future = scheduler.schedule(task, debounceMillis, TimeUnit.MILLISECONDS);
+        DebouncedTask previous = pending.put(path, task);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+    }
+
+    // ------------------------------ 辅助：转译单个文件（失败只打印，不影响后续监听） ------------------------------
+    private void translate(Path path) {
+        File file = path.toFile();
+        if (!FileUtil.isChartFile(file)) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            translator.translateFile(file, outputDir, options);
+            System.out.printf("[监听] %s 转译耗时：%dms%n", file.getName(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("[监听] 转译失败：" + file.getName() + " → " + e.getMessage());
+        }
+    }
+
+    // ------------------------------ 辅助：防抖任务（执行时只移除自己，不误删之后为同一文件登记的新任务） ------------------------------
+    private final class DebouncedTask implements Runnable {
+        private final Path path;
+        // 只在监听线程中赋值，且在登记到pending之前完成
+        private volatile ScheduledFuture<?> future;
+
+        DebouncedTask(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public void run() {
+            pending.remove(path, this);
+            translate(path);
+        }
+    }
+}
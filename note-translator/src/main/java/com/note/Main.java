@@ -1,6 +1,9 @@
 package com.note;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -11,12 +14,26 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.Logger;
 
 import com.note.config.AppConfig;
+import com.note.util.ArchiveUtil;
 import com.note.util.FileUtil;
 import com.note.util.LogUtil;
+import com.note.util.NoteLogUtil.LogLevel;
 
 public class Main {
-    private static final Logger logger = LogUtil.getLogger(Main.class);
-    private static final NoteTranslator translator = new NoteTranslator();
+    // 退出码：校验未通过 / 运行失败
+    private static final int EXIT_VALIDATION_FAILED = 2;
+    private static final int EXIT_FAILURE = 1;
+    // Ctrl+C退出监听模式时，等待主线程关闭转译器（写完日志）的最长时间
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+    // 控制台日志器只在出错时用到：首次调用logger()时才初始化logback，-h和正常转译不加载日志框架
+    private static final class LoggerHolder {
+        static final Logger LOGGER = LogUtil.getLogger(Main.class);
+    }
+
+    private static Logger logger() {
+        return LoggerHolder.LOGGER;
+    }
 
     public static void main(String[] args) {
         // 解析命令行参数
@@ -33,25 +50,123 @@ public class Main {
             return;
         }
 
+        // 转译参数（不可变）：每次运行只构造一次，转译器本身不保存参数
+        LogLevel logLevel;
+        double timeOffsetMs;
         try {
+            logLevel = LogLevel.parse(cmd.getOptionValue("log-level", "full"));
+            timeOffsetMs = Double.parseDouble(cmd.getOptionValue("offset-ms", String.valueOf(TranslateOptions.DEFAULT_TIME_OFFSET_MS)));
+        } catch (NumberFormatException e) {
+            logger().error("毫秒微调不是有效数字: {}", cmd.getOptionValue("offset-ms"));
+            printHelp(options);
+            return;
+        } catch (IllegalArgumentException e) {
+            logger().error(e.getMessage());
+            printHelp(options);
+            return;
+        }
+
+        if (cmd.hasOption("serve")) {
+            // HTTP服务模式：每个请求独立转译，不使用命令行的输入输出路径
+            try {
+                TranslateServer server = new TranslateServer(Integer.parseInt(cmd.getOptionValue("serve")),
+                        Integer.parseInt(cmd.getOptionValue("t", "0")), logLevel);
+                Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+                server.start();
+            } catch (Exception e) {
+                logger().error("转译服务启动失败", e);
+                System.exit(1);
+            }
+            return;
+        }
+
+        TranslateOptions translateOptions = TranslateOptions.DEFAULTS
+                .withLogLevel(logLevel)
+                .withTimeOffset(timeOffsetMs)
+                .withCompact(cmd.hasOption("compact"))
+                .withIncremental(cmd.hasOption("incremental"))
+                .withMetrics(cmd.hasOption("metrics"))
+                .withDirection(cmd.hasOption("compile") ? TranslateOptions.Direction.FORWARD : TranslateOptions.Direction.REVERSE)
+                .withValidateOnly(cmd.hasOption("validate-only"));
+
+        // 每次运行持有一个转译器（及其日志文件），运行结束后关闭；退出码在转译器关闭（日志写完）之后才生效
+        int exitCode = 0;
+        // 转译器关闭后计数归零：监听模式的关闭钩子据此等待，主线程自己调用System.exit时钩子不必再等
+        CountDownLatch translatorClosed = new CountDownLatch(1);
+        try (NoteTranslator translator = new NoteTranslator(logLevel)) {
             // 获取输入输出路径（命令行参数优先，否则用默认）
             String inputPath = cmd.getOptionValue("i", AppConfig.getInputPath());
             String outputPath = cmd.getOptionValue("o", AppConfig.getOutputPath());
+            translator.logOptions(translateOptions);
 
             File input = new File(inputPath);
-            if (input.isFile()) {
+            if (cmd.hasOption("diff")) {
+                // 对比模式：-i为旧谱面，--diff为新谱面，不写出文件
+                translator.diffFiles(input, new File(cmd.getOptionValue("diff")), translateOptions);
+            } else if (cmd.hasOption("watch") && !input.isDirectory()) {
+                logger().error("监听模式需要输入文件夹: {}", inputPath);
+                exitCode = EXIT_FAILURE;
+            } else if (cmd.hasOption("watch")) {
+                // 监听模式：转译器常驻，文件落地后立即转译
+                long debounce = Long.parseLong(cmd.getOptionValue("debounce", "300"));
+                ChartWatcher watcher = new ChartWatcher(translator, translateOptions, inputPath, outputPath, debounce);
+                // 退出时只关闭监听器唤醒watcher.run()，转译器由本try块关闭；钩子等转译器关闭完再结束，以免JVM提前退出丢日志
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    closeQuietly(watcher);
+                    try {
+                        translatorClosed.await(SHUTDOWN_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+                try {
+                    if (!watcher.run()) {
+                        exitCode = EXIT_FAILURE;
+                    }
+                } finally {
+                    closeQuietly(watcher);
+                }
+            } else if (input.isDirectory() || ArchiveUtil.isArchiveFile(input)) {
+                // 处理文件夹或谱面包（输出路径以.zip/.tar.gz/.tgz结尾时写出为谱面包）
+                int threads = Integer.parseInt(cmd.getOptionValue("t", "1"));
+                int failed = translator.translateBatch(input, new File(outputPath), threads, cmd.hasOption("virtual-threads"), translateOptions);
+                if (failed > 0 && translateOptions.validateOnly()) {
+                    // 校验模式供CI使用：有谱面未通过时以非0退出
+                    exitCode = EXIT_VALIDATION_FAILED;
+                }
+            } else if (input.isFile()) {
                 // 处理单个文件
-                FileUtil.ensureFolderExists(outputPath);
-                translator.translateSingleFile(input, outputPath);
-            } else if (input.isDirectory()) {
-                // 处理文件夹
-                translator.translateBatchFiles(inputPath, outputPath);
+                if (translateOptions.validateOnly()) {
+                    try {
+                        translator.translateFile(input, outputPath, translateOptions);
+                    } catch (RuntimeException e) {
+                        System.err.println("失败：" + input.getName() + " → " + e.getMessage());
+                        exitCode = EXIT_VALIDATION_FAILED;
+                    }
+                } else {
+                    FileUtil.ensureFolderExists(outputPath);
+                    translator.translateFile(input, outputPath, translateOptions);
+                }
             } else {
-                logger.error("输入路径不存在: {}", inputPath);
+                logger().error("输入路径不存在: {}", inputPath);
+                exitCode = EXIT_FAILURE;
             }
         } catch (Exception e) {
-            logger.error("程序运行失败", e);
-            System.exit(1);
+            logger().error("程序运行失败", e);
+            exitCode = EXIT_FAILURE;
+        }
+        translatorClosed.countDown();
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    // ------------------------------ 辅助：关闭监听器（可重复调用，退出阶段忽略异常） ------------------------------
+    private static void closeQuietly(ChartWatcher watcher) {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            // 退出阶段忽略
         }
     }
 
@@ -61,8 +176,21 @@ public class Main {
     private static Options createOptions() {
         Options options = new Options();
         options.addOption("h", "help", false, "显示帮助信息");
-        options.addOption("i", "input", true, "输入文件或文件夹路径（默认: input/）");
-        options.addOption("o", "output", true, "输出文件夹路径（默认: output/）");
+        options.addOption("i", "input", true, "输入文件、文件夹或谱面包（.zip/.tar.gz/.tgz）路径，支持.json、.json.gz和Sonolus导出的原始文件（默认: input/）");
+        options.addOption("o", "output", true, "输出文件夹路径，批量转译时也可以是谱面包（.zip/.tar.gz/.tgz）（默认: output/）");
+        options.addOption("t", "threads", true, "批量转译的并行线程数（默认: 1，0表示使用全部CPU核心）");
+        options.addOption(null, "virtual-threads", false, "批量转译使用虚拟线程（需JDK 21+，否则回退到平台线程）");
+        options.addOption(null, "compile", false, "正向编译：开发态谱面 → Sonolus已编译谱面（微调参数按相反方向撤销，与反向编译时使用相同参数即可还原）");
+        options.addOption(null, "validate-only", false, "只校验不输出：检查关联引用、滑键拍数顺序、BPM和轨道范围，跳过转译和写出（有错误时退出码为2）");
+        options.addOption(null, "diff", true, "对比模式：把-i指定的谱面（旧）与此谱面（新）做结构对比，列出新增/删除/移动/修改的音符（已编译或开发态谱面均可）");
+        options.addOption(null, "offset-ms", true, "时间微调（毫秒，正数=延后，负数=提前），按谱面BPM换算为拍，BPM变更保持原位（默认: 0）");
+        options.addOption(null, "compact", false, "输出紧凑JSON（无缩进换行，体积更小）");
+        options.addOption(null, "incremental", false, "增量批量转译：跳过内容和参数都未变化的谱面（清单保存在输出文件夹）");
+        options.addOption(null, "metrics", false, "生成指标报告：各谱面的解析/转译/滑键组装/写出耗时、读写字节数、实体吞吐和堆内存峰值（JSON + CSV，保存在输出位置）");
+        options.addOption(null, "watch", false, "监听模式：常驻并自动转译输入文件夹中新增或修改的谱面");
+        options.addOption(null, "debounce", true, "监听模式下同一文件最后一次写入后等待的毫秒数（默认: 300）");
+        options.addOption(null, "serve", true, "HTTP服务模式：在127.0.0.1的指定端口提供POST /translate转译接口（POST /compile为正向编译）");
+        options.addOption(null, "log-level", true, "转译日志详细程度：off/summary/sampled/full（默认: full）");
         return options;
     }
 
@@ -74,7 +202,7 @@ public class Main {
             CommandLineParser parser = new DefaultParser();
             return parser.parse(options, args);
         } catch (ParseException e) {
-            logger.error("参数解析失败: " + e.getMessage());
+            logger().error("参数解析失败: " + e.getMessage());
             printHelp(options);
             return null;
         }
@@ -87,6 +215,20 @@ public class Main {
         HelpFormatter formatter = new HelpFormatter();
         formatter.printHelp("note-translator", "音符数据转译工具（命令行版）", options, "示例:\n" +
                 "  转换单个文件: java -jar note-translator.jar -i input/level1.json -o output/\n" +
-                "  转换整个文件夹: java -jar note-translator.jar -i input/ -o output/", true);
+                "  转换整个文件夹: java -jar note-translator.jar -i input/ -o output/\n" +
+                "  直接转换Sonolus导出文件（无需改后缀解压）: java -jar note-translator.jar -i input/level -o output/\n" +
+                "  转换谱面包: java -jar note-translator.jar -i pack.zip -o output/\n" +
+                "  转换文件夹并打包输出: java -jar note-translator.jar -i input/ -o output.tar.gz\n" +
+                "  多线程转换文件夹: java -jar note-translator.jar -i input/ -o output/ -t 0\n" +
+                "  正向编译开发态谱面: java -jar note-translator.jar -i dev/ -o compiled/ --compile\n" +
+                "  批量校验谱面（CI用）: java -jar note-translator.jar -i input/ -t 0 --validate-only\n" +
+                "  对比重新导出的谱面: java -jar note-translator.jar -i old/level.json --diff new/level.json\n" +
+                "  所有音符延后25毫秒: java -jar note-translator.jar -i input/ -o output/ --offset-ms 25\n" +
+                "  增量转换文件夹: java -jar note-translator.jar -i input/ -o output/ --incremental\n" +
+                "  转换并生成指标报告: java -jar note-translator.jar -i input/ -o output/ -t 0 --metrics\n" +
+                "  监听文件夹并自动转换: java -jar note-translator.jar -i input/ -o output/ --watch\n" +
+                "  启动本地转译服务: java -jar note-translator.jar --serve 8080\n" +
+                "    调用: curl --data-binary @level.json \"http://127.0.0.1:8080/translate?laneOffset=3&compact=true\"\n" +
+                "  只记录汇总日志: java -jar note-translator.jar -i input/ -o output/ --log-level summary", true);
     }
 }
\ No newline at end of file
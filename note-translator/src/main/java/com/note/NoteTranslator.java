@@ -1,424 +1,899 @@
 package com.note;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Set;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+
+import com.note.chart.Archetype;
+import com.note.chart.BpmTimeline;
+import com.note.chart.ChartDiff;
+import com.note.chart.ChartEntity;
+import com.note.chart.ChartInput;
+import com.note.chart.ChartReader;
+import com.note.chart.ChartValidator;
+import com.note.chart.ChartWriter;
+import com.note.chart.DevChart;
+import com.note.chart.DevChartReader;
+import com.note.chart.DevChartWriter;
+import com.note.chart.Diagnostics;
+import com.note.chart.NoteIndex;
+import com.note.chart.SlideChainBuilder;
+import com.note.chart.SymbolTable;
+import com.note.util.ArchiveUtil;
+import com.note.util.ArchiveUtil.ArchiveType;
+import com.note.util.ArchiveUtil.ArchiveWriter;
 import com.note.util.FileUtil;
 import com.note.util.NoteLogUtil;
+import com.note.util.NoteLogUtil.LogLevel;
 import com.note.util.NoteLogUtil.NoteType;
+import com.note.util.ThreadUtil;
+import com.note.util.TranslateManifest;
+import com.note.util.TranslateMetrics;
+import com.note.util.TranslateMetrics.FileMetrics;
+import com.note.TranslateOptions.Direction;
 
 /**
- * 谱面反向转译核心类（已编译 → 开发态，微调参数集中配置）
+ * 谱面转译核心类（反向编译：已编译 → 开发态；正向编译：开发态 → 已编译，按TranslateOptions.direction选择）
+ * 两个方向共用开发态中间表示DevChart，微调在中间表示上施加（正向编译时按相反方向撤销）
+ * 本类不保存转译参数，每次调用传入不可变的TranslateOptions，同一实例可在多个线程间共享
  */
-public class NoteTranslator {
-    // ===================== 【反向编译-开发态微调参数配置区】（直接修改此处即可调整） =====================
-    // 时间微调（单位：拍）：正数=延后，负数=提前，默认0（无偏移）
-    private static final double DEFAULT_REVERSE_VERTICAL_OFFSET = 0.0;
-    // 轨道微调（单位：轨）：正数=右移，负数=左移，默认0（无偏移）
-    private static final int DEFAULT_REVERSE_LANE_OFFSET = 3;
-
-    // 当前生效的微调值（可通过set方法动态覆盖默认值）
-    private double reverseVerticalOffset = DEFAULT_REVERSE_VERTICAL_OFFSET;
-    private int reverseLaneOffset = DEFAULT_REVERSE_LANE_OFFSET;
-
+public class NoteTranslator implements AutoCloseable {
     // ===================== 核心依赖 =====================
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final ChartReader CHART_READER = new ChartReader();
+    private static final SlideChainBuilder SLIDE_CHAIN_BUILDER = new SlideChainBuilder();
+    private static final DevChartWriter DEV_CHART_WRITER = new DevChartWriter();
+    private static final DevChartReader DEV_CHART_READER = new DevChartReader();
+    private static final ChartWriter CHART_WRITER = new ChartWriter();
+    private static final ChartValidator CHART_VALIDATOR = new ChartValidator();
+    private static final ChartDiff CHART_DIFF = new ChartDiff();
+    // 校验模式下每个谱面最多在控制台打印的诊断条数（完整列表见日志）
+    private static final int MAX_PRINTED_DIAGNOSTICS = 20;
+    // 日志（线程安全，所有调用共享同一日志文件；首次写日志时才创建文件）
     private final NoteLogUtil noteLog;
+    // archetype枚举 → 日志音符类型（按ordinal预先算好，转译时不再比较字符串）
+    private final NoteType[] noteTypes = new NoteType[Archetype.values().length];
 
-    // ------------------------------ 构造器：初始化（加载默认微调参数） ------------------------------
+    // ------------------------------ 构造器 ------------------------------
     public NoteTranslator() {
-        this.noteLog = new NoteLogUtil();
-        logOffsetConfig(); // 打印当前微调配置
+        this(LogLevel.FULL);
     }
 
-    // ------------------------------ 打印当前微调参数（方便确认） ------------------------------
-    private void logOffsetConfig() {
-        noteLog.logTranslateStart("=== 反向编译-开发态微调参数 ===");
-        noteLog.logTranslateStart("时间微调（拍）：" + reverseVerticalOffset + "（默认：" + DEFAULT_REVERSE_VERTICAL_OFFSET + "）");
-        noteLog.logTranslateStart("轨道微调（轨）：" + reverseLaneOffset + "（默认：" + DEFAULT_REVERSE_LANE_OFFSET + "）");
-        noteLog.logTranslateStart("=============================================");
+    /**
+     * @param logLevel 日志文件的详细程度上限（OFF时不生成日志文件，转译热路径无日志I/O）
+     */
+    public NoteTranslator(LogLevel logLevel) {
+        this.noteLog = new NoteLogUtil(logLevel);
+        for (Archetype archetype : Archetype.values()) {
+            noteTypes[archetype.ordinal()] = noteLog.getNoteType(archetype.archetypeName());
+        }
+    }
+
+    /**
+     * 关闭本实例的日志文件
+     */
+    @Override
+    public void close() {
+        noteLog.close();
     }
 
-    // ------------------------------ 【可选】动态调整微调参数（也可直接改配置区默认值） ------------------------------
     /**
-     * 动态设置开发态谱面的时间和轨道微调
+     * 当前日志文件路径（日志关闭或尚未写过日志时为null）
      */
-    public void setReverseOffset(double verticalOffset, int laneOffset) {
-        this.reverseVerticalOffset = verticalOffset;
-        this.reverseLaneOffset = laneOffset;
-        noteLog.logTranslateStart("开发态微调已更新 | 时间：" + verticalOffset + "拍 | 轨道：" + laneOffset + "轨");
+    public String getCurrentLogFilePath() {
+        return noteLog.getCurrentLogFilePath();
+    }
+
+    // ------------------------------ 打印转译参数（每次运行开始时记录一次，方便确认） ------------------------------
+    public void logOptions(TranslateOptions options) {
+        if (logLevel(options) == LogLevel.OFF) return;
+        noteLog.logTranslateStart("=== " + options.direction().label() + "-开发态微调参数 ===");
+        noteLog.logTranslateStart("时间微调（拍）：" + options.verticalOffset() + "（默认：" + TranslateOptions.DEFAULT_VERTICAL_OFFSET + "）");
+        noteLog.logTranslateStart("时间微调（毫秒）：" + options.timeOffsetMs() + "（默认：" + TranslateOptions.DEFAULT_TIME_OFFSET_MS + "）");
+        noteLog.logTranslateStart("轨道微调（轨）：" + options.laneOffset() + "（默认：" + TranslateOptions.DEFAULT_LANE_OFFSET + "）");
+        noteLog.logTranslateStart("输出格式：" + (options.compact() ? "紧凑" : "缩进") + " | 增量：" + (options.incremental() ? "开启" : "关闭")
+                + " | 指标报告：" + (options.metrics() ? "开启" : "关闭") + " | 只校验：" + (options.validateOnly() ? "是" : "否"));
+        noteLog.logTranslateStart("=============================================");
     }
 
-    // ------------------------------ 核心：单文件反向编译（已→开 + 微调） ------------------------------
-    public void translateSingleFile(File inputFile, String outputDir) throws Exception {
+    // ------------------------------ 核心：单文件转译（反向：已→开 + 微调；正向：撤销微调 + 开→已） ------------------------------
+    /**
+     * 单文件转译（单文件/批量/监听模式共用，日志写入本实例的日志文件）
+     *
+     * @return 读取的实体数（跳过的非谱面文件返回0）
+     */
+    public int translateFile(File inputFile, String outputDir, TranslateOptions options) throws Exception {
+        boolean logEnabled = logLevel(options) != LogLevel.OFF;
         File outputFolder = new File(outputDir);
-        if (!outputFolder.exists()) {
+        // 只校验时不写出谱面，除非要保存指标报告，否则不创建输出文件夹
+        if (!outputFolder.exists() && (!options.validateOnly() || options.metrics())) {
             outputFolder.mkdirs();
-            noteLog.logTranslateStart("输出文件夹创建：" + outputFolder.getAbsolutePath());
+            if (logEnabled) noteLog.logTranslateStart("输出文件夹创建：" + outputFolder.getAbsolutePath());
         }
 
-        noteLog.createNewLogFile();
-        noteLog.logTranslateStart("反向编译开始 | 输入：" + inputFile.getAbsolutePath());
-
-        if (!FileUtil.isJsonFile(inputFile)) {
-            String error = "跳过非JSON：" + inputFile.getName();
-            noteLog.logError(error, null);
+        if (!FileUtil.isChartFile(inputFile)) {
+            String error = "跳过非谱面文件：" + inputFile.getName();
+            if (logEnabled) noteLog.logError(error, null);
             System.err.println(error);
-            return;
+            return 0;
         }
 
-        JsonNode root = OBJECT_MAPPER.readTree(inputFile);
-        JsonNode entities = root.get("entities");
-        if (entities == null || !entities.isArray()) {
-            String error = "格式错误：缺少\"entities\"数组 | " + inputFile.getName();
-            noteLog.logError(error, null);
-            throw new RuntimeException(error);
+        TranslateMetrics metrics = options.metrics() ? new TranslateMetrics() : null;
+        FileMetrics fileMetrics = metrics != null ? metrics.add(inputFile.getName()) : new FileMetrics(inputFile.getName());
+        // 整个文件只读一次（池化数组或内存映射），解析直接在内存中进行
+        long start = System.nanoTime();
+        try (ChartInput input = readInput(inputFile, logEnabled)) {
+            fileMetrics.readNanos = System.nanoTime() - start;
+            fileMetrics.bytesIn = input.length();
+            return translateInput(inputFile, input, outputDir, options, fileMetrics);
+        } catch (RuntimeException | IOException e) {
+            fileMetrics.error = e.getMessage();
+            throw e;
+        } finally {
+            if (metrics != null) saveMetrics(metrics, outputFolder, logEnabled);
         }
+    }
 
-        List<JsonNode> originalNotes = new ArrayList<>();
-        entities.forEach(originalNotes::add);
-        int totalNoteCount = originalNotes.size();
-        noteLog.logTranslateStart("读取音符数：" + totalNoteCount + " | 文件：" + inputFile.getName());
+    // ------------------------------ 已读入内存的谱面 → 输出文件 ------------------------------
+    private int translateInput(File inputFile, ChartInput input, String outputDir, TranslateOptions options,
+                               FileMetrics metrics) throws IOException {
+        DevChart chart = transform(inputFile.getAbsolutePath(), inputFile.getName(), input, options, metrics);
+        if (chart == null) {
+            System.out.printf("[通过] 校验 | %s | 实体数：%d%n", inputFile.getName(), metrics.entityCount);
+            return metrics.entityCount;
+        }
+        long start = System.nanoTime();
+        metrics.bytesOut = writeOutput(inputFile.getName(), chart, outputDir, options);
+        metrics.writeNanos = System.nanoTime() - start;
+        metrics.sampleHeap();
+        return metrics.entityCount;
+    }
 
-        // 音符name映射（双押、滑键关联用）
-        Map<String, JsonNode> noteMap = new HashMap<>();
-        originalNotes.forEach(note -> {
-            if (note.has("name")) {
-                noteMap.put(note.get("name").asText(), note);
-            }
-        });
+    // ------------------------------ 批量流水线的各阶段也复用以下几步：解析+转译 / 写出到文件夹 / 写出到谱面包 ------------------------------
+    /**
+     * 按转译方向解析并校验输入，再转换为待写出的中间表示（反向：已编译实体 → 开发态 + 微调；正向：开发态 → 撤销微调）
+     *
+     * @return 待写出的谱面；只校验模式下校验通过时返回null（有错误时抛出异常）
+     */
+    DevChart transform(String inputPath, String inputName, ChartInput input, TranslateOptions options,
+                       FileMetrics metrics) {
+        if (options.direction() == Direction.REVERSE) {
+            return parseAndTranslate(inputPath, inputName, input, options, metrics);
+        }
+        long start = System.nanoTime();
+        DevChart chart = parseDevChart(inputPath, inputName, input, options);
+        metrics.parseNanos = System.nanoTime() - start;
+        metrics.entityCount = chart.getNoteCount();
+        metrics.sampleHeap();
+
+        start = System.nanoTime();
+        Diagnostics diagnostics = CHART_VALIDATOR.validate(chart);
+        metrics.validateNanos = System.nanoTime() - start;
+        if (!checkDiagnostics(inputName, diagnostics, options, metrics)) {
+            return null;
+        }
 
-        List<JsonNode> slideRelated = new ArrayList<>();
-        List<ObjectNode> translated = new ArrayList<>();
+        start = System.nanoTime();
+        compileChart(chart, options);
+        metrics.transformNanos = System.nanoTime() - start;
+        metrics.sampleHeap();
+        return chart;
+    }
 
-        for (int i = 0; i < totalNoteCount; i++) {
-            JsonNode original = originalNotes.get(i);
-            String archetype = original.get("archetype").asText();
-
-            if (archetype.equals("Initialization") || archetype.equals("Stage")) {
-                // 记录元数据日志（保持日志完整，不遗漏信息）
-                noteLog.logNoteTranslated(
-                        i + 1, totalNoteCount, 
-                        NoteType.OTHER, // 元数据标记为“其他类型”
-                        archetype, // 名称用元数据类型（如Initialization）
-                        getBaseBeat(original), // 基础beat（元数据无beat时返回0，不影响）
-                        getBaseLane(original), // 基础lane（元数据无lane时返回0，不影响）
-                        getBaseBeat(original) + reverseVerticalOffset, // 微调后beat
-                        getBaseLane(original) + reverseLaneOffset, // 微调后lane
-                        noteLog.getRefs(original) // 关联信息（元数据通常为空）
-        );
-        continue; // 跳过后续所有处理，不生成开发态节点
+    DevChart parseAndTranslate(String inputPath, String inputName, ChartInput input, TranslateOptions options,
+                               FileMetrics metrics) {
+        long start = System.nanoTime();
+        List<ChartEntity> originalNotes = parseInput(inputPath, inputName, input, options);
+        metrics.parseNanos = System.nanoTime() - start;
+        metrics.entityCount = originalNotes.size();
+        metrics.sampleHeap();
+
+        start = System.nanoTime();
+        Diagnostics diagnostics = CHART_VALIDATOR.validate(originalNotes);
+        metrics.validateNanos = System.nanoTime() - start;
+        if (!checkDiagnostics(inputName, diagnostics, options, metrics)) {
+            return null;
+        }
+        // 已编译实体 → 开发态中间表示（原始坐标）→ 应用开发态微调
+        return translateEntities(originalNotes, options, metrics);
     }
 
-            String noteName = original.has("name") ? original.get("name").asText() : "";
-            NoteType noteType = noteLog.getNoteType(archetype);
-            String refs = noteLog.getRefs(original);
+    List<ChartEntity> parseInput(String inputPath, String inputName, ChartInput input, TranslateOptions options) {
+        boolean logEnabled = logLevel(options) != LogLevel.OFF;
+        if (logEnabled) noteLog.logTranslateStart("反向编译开始 | 输入：" + inputPath);
 
-            // 提取已编译原始值 + 应用开发态微调
-            double baseBeat = getBaseBeat(original);
-            int baseLane = getBaseLane(original);
-            double finalBeat = baseBeat + reverseVerticalOffset;
-            int finalLane = baseLane + reverseLaneOffset;
+        List<ChartEntity> originalNotes;
+        try {
+            originalNotes = CHART_READER.readAll(input);
+        } catch (IOException e) {
+            throw readFailure(inputName, e, logEnabled);
+        }
+        if (logEnabled) noteLog.logTranslateStart("读取音符数：" + originalNotes.size() + " | 文件：" + inputName);
+        return originalNotes;
+    }
 
-            // ===================== 分类型转换为开发态格式 =====================
-            // 1. BPM变更 → 开发态BPM
-            if (archetype.equals("#BPM_CHANGE")) {
-                JsonNode data = original.get("data");
-                double beat = getFieldValueByName(data, "#BEAT");
-                double bpm = getFieldValueByName(data, "#BPM");
-    
-                // 防止无效BPM（比如BPM=0或负数）
-                if (bpm <= 0 || beat < 0) {
-                    noteLog.logError("BPM无效！BPM=" + bpm + " | 节拍=" + beat + " | 索引：" + i, null);
-                    continue; // 跳过这个无效BPM
+    // ------------------------------ 辅助：记录校验结果，返回是否继续转译（只校验模式下有错误时抛出异常，使该谱面计为失败） ------------------------------
+    private boolean checkDiagnostics(String inputName, Diagnostics diagnostics, TranslateOptions options, FileMetrics metrics) {
+        metrics.errorCount = diagnostics.getErrorCount();
+        metrics.warningCount = diagnostics.getWarningCount();
+        if (!diagnostics.isEmpty()) {
+            if (logLevel(options) != LogLevel.OFF) {
+                for (int i = 0; i < diagnostics.size(); i++) {
+                    if (diagnostics.getSeverity(i) == Diagnostics.Severity.ERROR) {
+                        noteLog.logError(diagnostics.format(i) + " | 文件：" + inputName, null);
+                    } else {
+                        noteLog.logWarn(diagnostics.format(i) + " | 文件：" + inputName);
+                    }
                 }
-    
-                ObjectNode bpmNote = OBJECT_MAPPER.createObjectNode();
-                bpmNote.put("type", "BPM");
-                bpmNote.put("bpm", bpm);
-                bpmNote.put("beat", beat + reverseVerticalOffset); // 应用时间微调
-                translated.add(bpmNote);
-
-                noteLog.logNoteTranslated(
-                        i + 1, totalNoteCount, NoteType.OTHER, "BPM",
-                        beat, 0, 
-                        beat + reverseVerticalOffset, 0, 
-                        noteLog.getRefs(original)
-                );
-                continue;
             }
-
-            // 2. 单键（Tap/Flick → Single）
-            if (archetype.equals("TapNote") || archetype.equals("FlickNote")) {
-                ObjectNode single = OBJECT_MAPPER.createObjectNode();
-                single.put("type", "Single");
-                if (archetype.equals("FlickNote")) single.put("flick", true);
-                single.put("beat", finalBeat);
-                single.put("lane", finalLane);
-                translated.add(single);
-
-                noteLog.logNoteTranslated(
-                        i + 1, totalNoteCount,
-                        archetype.equals("TapNote") ? NoteType.BLUE : NoteType.PINK,
-                        noteName, baseBeat, baseLane, finalBeat, finalLane, refs
-                );
-                continue;
+            if (options.validateOnly()) {
+                // 校验模式逐条打印（超出上限的只给条数）
+                int printed = Math.min(diagnostics.size(), MAX_PRINTED_DIAGNOSTICS);
+                for (int i = 0; i < printed; i++) {
+                    System.out.println(inputName + " | " + diagnostics.format(i));
+                }
+                if (printed < diagnostics.size()) {
+                    System.out.println(inputName + " | ……另有" + (diagnostics.size() - printed) + "条诊断");
+                }
+            } else {
+                System.out.printf("[校验] %s | %s%n", inputName, diagnostics.summary());
             }
+        }
+        if (!options.validateOnly()) {
+            return true;
+        }
+        if (diagnostics.hasErrors()) {
+            throw new RuntimeException("校验失败（" + diagnostics.summary() + "）");
+        }
+        return false;
+    }
 
-            // 3. 双押（SimLine → 两个Single）
-            if (archetype.equals("SimLine")) {
-                handleSimLine(original, noteMap, translated, noteLog, i, totalNoteCount);
-                continue;
-            }
+    private DevChart parseDevChart(String inputPath, String inputName, ChartInput input, TranslateOptions options) {
+        boolean logEnabled = logLevel(options) != LogLevel.OFF;
+        if (logEnabled) noteLog.logTranslateStart("正向编译开始 | 输入：" + inputPath);
 
-            // 4. 滑键（所有Slide子元素 → 后续整合为Slide）
-            if (archetype.startsWith("Slide") || archetype.contains("Connector")) {
-                slideRelated.add(original);
-                noteLog.logNoteTranslated(
-                        i + 1, totalNoteCount, noteType, noteName,
-                        baseBeat, baseLane, finalBeat, finalLane, refs
-                );
-                continue;
-            }
+        DevChart chart;
+        try {
+            chart = DEV_CHART_READER.read(input);
+        } catch (IOException e) {
+            throw readFailure(inputName, e, logEnabled);
+        }
+        if (logEnabled) noteLog.logTranslateStart("读取开发态音符数：" + chart.getNoteCount() + " | 文件：" + inputName);
+        return chart;
+    }
 
-            // 5. 其他类型（如IgnoredNote）
-            ObjectNode defaultNote = OBJECT_MAPPER.createObjectNode();
-            defaultNote.put("type", mapToDevType(archetype));
-            defaultNote.put("beat", finalBeat);
-            defaultNote.put("lane", finalLane);
-            if (!noteName.isEmpty()) defaultNote.put("name", noteName);
-            if (!refs.isEmpty()) {
-                for (String pair : refs.split(",")) {
-                    String[] kv = pair.split("=");
-                    if (kv.length == 2) defaultNote.put(kv[0] + "Ref", kv[1]);
-                }
-            }
-            translated.add(defaultNote);
+    /**
+     * @return 写出的字节数
+     */
+    long writeOutput(String inputName, DevChart chart, String outputDir, TranslateOptions options) throws IOException {
+        boolean logEnabled = logLevel(options) != LogLevel.OFF;
+        File outputFile = new File(outputDir + File.separator + FileUtil.getOutputFileName(inputName));
+        // 谱面包条目可能带目录，先建好上级文件夹
+        File parent = outputFile.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        long bytes = options.direction() == Direction.FORWARD
+                ? CHART_WRITER.write(chart, outputFile, !options.compact())
+                : DEV_CHART_WRITER.write(chart, outputFile, !options.compact());
+
+        String label = options.direction().label();
+        if (logEnabled) {
+            noteLog.logTranslateComplete(
+                    chart.getNoteCount(), label + "完成 | 输出：" + outputFile.getAbsolutePath()
+            );
+        }
+        System.out.printf("[完成] %s | %s → %s | 音符数：%d%n",
+                label, inputName, outputFile.getName(), chart.getNoteCount());
+        return bytes;
+    }
+
+    long writeArchiveEntry(String inputName, DevChart chart, ArchiveWriter archive, File archiveFile,
+                           TranslateOptions options) throws IOException {
+        String outputName = FileUtil.getOutputFileName(inputName);
+        int bytes = archive.writeEntry(outputName, out -> writeChart(chart, out, options));
 
-            noteLog.logNoteTranslated(
-                    i + 1, totalNoteCount, noteType, noteName,
-                    baseBeat, baseLane, finalBeat, finalLane, refs
+        String label = options.direction().label();
+        if (logLevel(options) != LogLevel.OFF) {
+            noteLog.logTranslateComplete(
+                    chart.getNoteCount(), label + "完成 | 输出：" + archiveFile.getAbsolutePath() + "!/" + outputName
             );
         }
+        System.out.printf("[完成] %s | %s → %s!/%s | 音符数：%d%n",
+                label, inputName, archiveFile.getName(), outputName, chart.getNoteCount());
+        return bytes;
+    }
 
-        // 整合滑键为开发态Slide（带connections数组）
-        List<ObjectNode> slideNotes = generateSlideObjects(slideRelated, noteMap, noteLog);
-        translated.addAll(slideNotes);
+    // ------------------------------ 辅助：读入谱面文件（读取失败时记录日志并包装为运行时异常） ------------------------------
+    ChartInput readInput(File inputFile, boolean logEnabled) {
+        try {
+            return ChartInput.read(inputFile);
+        } catch (IOException e) {
+            throw readFailure(inputFile.getName(), e, logEnabled);
+        }
+    }
 
-        // 输出开发态谱面
-        File outputFile = new File(outputDir + File.separator + inputFile.getName());
-        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(outputFile, translated);
+    private RuntimeException readFailure(String inputName, IOException e, boolean logEnabled) {
+        String error = e.getMessage() + " | " + inputName;
+        if (logEnabled) noteLog.logError(error, null);
+        return new RuntimeException(error, e);
+    }
 
-        noteLog.logTranslateComplete(
-                translated.size(), "反向编译完成 | 输出：" + outputFile.getAbsolutePath()
-        );
-        System.out.printf("[完成] 反向编译 | %s → %s | 音符数：%d%n",
-                inputFile.getName(), outputFile.getName(), translated.size());
+    /**
+     * 流式转译：从输入流读取已编译谱面（JSON或gzip），把开发态谱面写到输出流（输出流不关闭）
+     *
+     * @return 读取的实体数
+     */
+    public int translateStream(InputStream in, OutputStream out, TranslateOptions options) throws IOException {
+        List<ChartEntity> originalNotes = readEntities(in);
+        writeChart(translateEntities(originalNotes, options), out, options);
+        return originalNotes.size();
     }
 
-    // ------------------------------ 辅助：提取已编译谱面的基础beat ------------------------------
-    private double getBaseBeat(JsonNode compiledNote) {
-        JsonNode data = compiledNote.get("data");
-        return getFieldValueByName(data, "#BEAT");
+    /**
+     * 流式正向编译：从输入流读取开发态谱面（JSON或gzip），把已编译谱面写到输出流（输出流不关闭）
+     *
+     * @return 读取的开发态音符数
+     */
+    public int compileStream(InputStream in, OutputStream out, TranslateOptions options) throws IOException {
+        DevChart chart = readDevChart(in);
+        CHART_WRITER.write(compileChart(chart, options), out, !options.compact());
+        return chart.getNoteCount();
     }
 
-    // ------------------------------ 辅助：提取已编译谱面的基础lane ------------------------------
-    private int getBaseLane(JsonNode compiledNote) {
-        JsonNode data = compiledNote.get("data");
-        double laneValue = getFieldValueByName(data, "lane");
-        return (int) laneValue; // lane是整数，转一下
+    /**
+     * 从输入流解码开发态谱面（自动识别gzip，读完后关闭输入流）
+     */
+    public DevChart readDevChart(InputStream in) throws IOException {
+        return DEV_CHART_READER.read(in);
     }
 
-    // ------------------------------ 辅助：处理双押（SimLine → 两个Single） ------------------------------
-    private void handleSimLine(JsonNode simLine, Map<String, JsonNode> noteMap, 
-                              List<ObjectNode> translated, NoteLogUtil noteLog,
+    /**
+     * 从输入流解码已编译谱面实体（自动识别gzip，读完后关闭输入流）
+     */
+    public List<ChartEntity> readEntities(InputStream in) throws IOException {
+        List<ChartEntity> originalNotes = new ArrayList<>();
+        CHART_READER.read(ChartReader.open(in), originalNotes::add);
+        return originalNotes;
+    }
+
+    /**
+     * 按转译方向和输出格式把谱面写到输出流（反向写开发态，正向写已编译；输出流不关闭）
+     */
+    public void writeChart(DevChart chart, OutputStream out, TranslateOptions options) throws IOException {
+        if (options.direction() == Direction.FORWARD) {
+            CHART_WRITER.write(chart, out, !options.compact());
+        } else {
+            DEV_CHART_WRITER.write(chart, out, !options.compact());
+        }
+    }
+
+    /**
+     * 转译已解码的实体（不读写文件）：生成开发态中间表示并应用微调
+     */
+    public DevChart translateEntities(List<ChartEntity> originalNotes, TranslateOptions options) {
+        return translateEntities(originalNotes, options, null);
+    }
+
+    // ------------------------------ 同上，并把转译 / 滑键组装耗时记入指标（metrics为null时不统计） ------------------------------
+    DevChart translateEntities(List<ChartEntity> originalNotes, TranslateOptions options, FileMetrics metrics) {
+        long start = System.nanoTime();
+        DevChart chart = buildDevChart(originalNotes, options, metrics);
+        if (options.timeOffsetMs() != 0.0) {
+            applyTimeOffset(chart, options.timeOffsetMs(), options);
+        }
+        chart.applyOffset(options.verticalOffset(), options.laneOffset());
+        if (metrics != null) {
+            metrics.transformNanos = System.nanoTime() - start - metrics.slideNanos;
+            metrics.sampleHeap();
+        }
+        return chart;
+    }
+
+    /**
+     * 正向编译已解码的开发态谱面（不读写文件）：按与反向编译相反的顺序撤销微调，
+     * 使同一组参数下“反向编译 → 正向编译”回到原始坐标
+     *
+     * @return 传入的chart（原地修改）
+     * @throws IllegalArgumentException 谱面中有不足两个节点的滑键
+     */
+    public DevChart compileChart(DevChart chart, TranslateOptions options) {
+        CHART_WRITER.requireCompilable(chart);
+        chart.applyOffset(-options.verticalOffset(), -options.laneOffset());
+        if (options.timeOffsetMs() != 0.0) {
+            applyTimeOffset(chart, -options.timeOffsetMs(), options);
+        }
+        return chart;
+    }
+
+    // ------------------------------ 辅助：按毫秒微调（用本谱面的BPM时间轴换算为拍，没有BPM时无法换算，跳过） ------------------------------
+    private void applyTimeOffset(DevChart chart, double offsetMs, TranslateOptions options) {
+        BpmTimeline timeline = BpmTimeline.of(chart);
+        if (timeline.isEmpty()) {
+            if (logLevel(options) != LogLevel.OFF) noteLog.logError("谱面没有BPM变更，忽略毫秒微调：" + offsetMs + "ms", null);
+            return;
+        }
+        chart.applyTimeOffset(timeline, offsetMs / 1000.0);
+    }
+
+    // ------------------------------ 已编译实体 → 开发态中间表示（坐标保持原值，微调由DevChart.applyOffset统一处理） ------------------------------
+    private DevChart buildDevChart(List<ChartEntity> originalNotes, TranslateOptions options, FileMetrics metrics) {
+        int totalNoteCount = originalNotes.size();
+        LogLevel logLevel = logLevel(options);
+        double reverseVerticalOffset = options.verticalOffset();
+        int reverseLaneOffset = options.laneOffset();
+        // 音符name映射（双押、滑键关联用）：name符号编号 → 实体下标（同一谱面的实体共用一个符号表）
+        int[] noteBySymbol = new int[totalNoteCount == 0 ? 0 : originalNotes.get(0).getSymbols().size()];
+        Arrays.fill(noteBySymbol, -1);
+        for (int i = 0; i < totalNoteCount; i++) {
+            ChartEntity note = originalNotes.get(i);
+            if (note.hasName()) {
+                noteBySymbol[note.getNameId()] = i;
+            }
+        }
+
+        List<ChartEntity> slideRelated = new ArrayList<>();
+        // 双押在所有音符生成后再处理（端点可能在SimLine之后才出现）
+        List<ChartEntity> simLines = new ArrayList<>();
+        DevChart translated = new DevChart();
+
+        for (int i = 0; i < totalNoteCount; i++) {
+            ChartEntity original = originalNotes.get(i);
+            Archetype kind = original.getKind();
+            String archetype = original.getArchetype();
+            String noteName = original.getName();
+            String refs = original.getRefs();
+
+            // 提取已编译原始值（微调后的值只用于日志，实际微调由DevChart.applyOffset统一完成）
+            double baseBeat = original.getBeat();
+            int baseLane = original.getLane();
+            double finalBeat = baseBeat + reverseVerticalOffset;
+            int finalLane = baseLane + reverseLaneOffset;
+
+            // ===================== 分类型转换为开发态格式（按archetype枚举分派） =====================
+            switch (kind) {
+                case INITIALIZATION, STAGE -> {
+                    // 记录元数据日志（保持日志完整，不遗漏信息），不生成开发态节点
+                    noteLog.logNoteTranslated(
+                            logLevel, i + 1, totalNoteCount,
+                            NoteType.OTHER, // 元数据标记为“其他类型”
+                            archetype, // 名称用元数据类型（如Initialization）
+                            baseBeat, // 基础beat（元数据无beat时为0，不影响）
+                            baseLane, // 基础lane（元数据无lane时为0，不影响）
+                            finalBeat, // 微调后beat
+                            finalLane, // 微调后lane
+                            refs // 关联信息（元数据通常为空）
+                    );
+                }
+                // 1. BPM变更 → 开发态BPM
+                case BPM_CHANGE -> {
+                    double bpm = original.getBpm();
+                    // 防止无效BPM（比如BPM=0或负数）
+                    if (bpm <= 0 || baseBeat < 0) {
+                        if (logLevel != LogLevel.OFF) noteLog.logError("BPM无效！BPM=" + bpm + " | 节拍=" + baseBeat + " | 索引：" + i, null);
+                        continue; // 跳过这个无效BPM
+                    }
+                    translated.addBpm(baseBeat, bpm);
+
+                    noteLog.logNoteTranslated(
+                            logLevel, i + 1, totalNoteCount, NoteType.OTHER, "BPM",
+                            baseBeat, 0,
+                            finalBeat, 0,
+                            refs
+                    );
+                }
+                // 2. 单键（Tap/Flick → Single）
+                case TAP_NOTE, FLICK_NOTE -> {
+                    translated.addSingle(baseBeat, baseLane, kind == Archetype.FLICK_NOTE);
+
+                    noteLog.logNoteTranslated(
+                            logLevel, i + 1, totalNoteCount,
+                            kind == Archetype.TAP_NOTE ? NoteType.BLUE : NoteType.PINK,
+                            noteName, baseBeat, baseLane, finalBeat, finalLane, refs
+                    );
+                }
+                // 3. 双押（端点本身已作为单键/滑键节点生成，稍后只补上缺失的端点）
+                case SIM_LINE -> simLines.add(original);
+                default -> {
+                    if (kind.isSlide()) {
+                        // 4. 滑键（所有Slide子元素 → 后续整合为Slide）
+                        slideRelated.add(original);
+                    } else {
+                        // 5. 其他类型（如IgnoredNote）
+                        translated.addOther(mapToDevType(kind, archetype, logLevel), baseBeat, baseLane, noteName, refs);
+                    }
+                    noteLog.logNoteTranslated(
+                            logLevel, i + 1, totalNoteCount, noteTypes[kind.ordinal()], noteName,
+                            baseBeat, baseLane, finalBeat, finalLane, refs
+                    );
+                }
+            }
+        }
+
+        // 整合滑键为开发态Slide（带connections数组）
+        long slideStart = System.nanoTime();
+        generateSlideObjects(slideRelated, translated, options, logLevel);
+        if (metrics != null) metrics.slideNanos = System.nanoTime() - slideStart;
+
+        if (!simLines.isEmpty()) {
+            NoteIndex positions = indexNotes(translated);
+            for (ChartEntity simLine : simLines) {
+                handleSimLine(simLine, originalNotes, noteBySymbol, positions, translated, options, logLevel,
+                        simLine.getIndex(), totalNoteCount);
+            }
+        }
+        return translated;
+    }
+
+    // ------------------------------ 辅助：已生成的单键和滑键节点按拍 + 轨道建索引（双押端点去重用） ------------------------------
+    private NoteIndex indexNotes(DevChart chart) {
+        NoteIndex positions = new NoteIndex(chart.getNoteCount());
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_SINGLE) {
+                positions.putIfAbsent(chart.getBeat(i), chart.getLane(i), i);
+            } else if (chart.getKind(i) == DevChart.KIND_SLIDE) {
+                for (int point = chart.getSlideFirstPoint(i); point >= 0; point = chart.getNextPoint(point)) {
+                    positions.putIfAbsent(chart.getPointBeat(point), chart.getPointLane(point), i);
+                }
+            }
+        }
+        return positions;
+    }
+
+    // ------------------------------ 辅助：处理双押（端点位置已有音符时不重复生成，否则补一个Single） ------------------------------
+    private void handleSimLine(ChartEntity simLine, List<ChartEntity> originalNotes, int[] noteBySymbol,
+                              NoteIndex positions, DevChart translated, TranslateOptions options, LogLevel logLevel,
                               int index, int total) {
-        JsonNode data = simLine.get("data");
-        if (!data.has("a") || !data.has("b")) {
-            noteLog.logError("SimLine缺少a/b关联 | 索引：" + index, null);
+        int leftRefId = simLine.getRefAId();
+        int rightRefId = simLine.getRefBId();
+        if (leftRefId == SymbolTable.NONE || rightRefId == SymbolTable.NONE) {
+            if (logLevel != LogLevel.OFF) noteLog.logError("SimLine缺少a/b关联 | 索引：" + index, null);
             return;
         }
-        String leftRef = data.get("a").get("ref").asText();
-        String rightRef = data.get("b").get("ref").asText();
 
-        JsonNode leftNote = noteMap.get(leftRef);
-        JsonNode rightNote = noteMap.get(rightRef);
-        if (leftNote == null || rightNote == null) {
-            noteLog.logError("双押关联音符不存在 | 左=" + leftRef + " 右=" + rightRef, null);
+        int leftIndex = noteBySymbol[leftRefId];
+        int rightIndex = noteBySymbol[rightRefId];
+        if (leftIndex < 0 || rightIndex < 0) {
+            if (logLevel != LogLevel.OFF) noteLog.logError("双押关联音符不存在 | 左=" + simLine.getRefA() + " 右=" + simLine.getRefB(), null);
             return;
         }
+        ChartEntity leftNote = originalNotes.get(leftIndex);
+        ChartEntity rightNote = originalNotes.get(rightIndex);
 
         // 提取基础值 + 应用开发态微调
-        double leftBase = getBaseBeat(leftNote);
-        int leftBaseLane = getBaseLane(leftNote);
-        double rightBase = getBaseBeat(rightNote);
-        int rightBaseLane = getBaseLane(rightNote);
-        double leftFinal = leftBase + reverseVerticalOffset;
-        int leftFinalLane = leftBaseLane + reverseLaneOffset;
-        double rightFinal = rightBase + reverseVerticalOffset;
-        int rightFinalLane = rightBaseLane + reverseLaneOffset;
-
-        // 生成左单键
-        ObjectNode leftSingle = OBJECT_MAPPER.createObjectNode();
-        leftSingle.put("type", "Single");
-        if (leftNote.get("archetype").asText().equals("FlickNote")) leftSingle.put("flick", true);
-        leftSingle.put("beat", leftFinal);
-        leftSingle.put("lane", leftFinalLane);
-        translated.add(leftSingle);
-
-        // 生成右单键
-        ObjectNode rightSingle = OBJECT_MAPPER.createObjectNode();
-        rightSingle.put("type", "Single");
-        if (rightNote.get("archetype").asText().equals("FlickNote")) rightSingle.put("flick", true);
-        rightSingle.put("beat", rightFinal);
-        rightSingle.put("lane", rightFinalLane);
-        translated.add(rightSingle);
+        double leftBase = leftNote.getBeat();
+        int leftBaseLane = leftNote.getLane();
+        double rightBase = rightNote.getBeat();
+        int rightBaseLane = rightNote.getLane();
+        double leftFinal = leftBase + options.verticalOffset();
+        int leftFinalLane = leftBaseLane + options.laneOffset();
+        double rightFinal = rightBase + options.verticalOffset();
+        int rightFinalLane = rightBaseLane + options.laneOffset();
+
+        // 端点通常已由Tap/Flick或滑键分支生成，只补上缺失的端点（避免开发态中出现重叠的音符）
+        addSimLineEnd(leftNote, positions, translated);
+        addSimLineEnd(rightNote, positions, translated);
 
         // 日志记录
         noteLog.logNoteTranslated(
-                index + 1, total, NoteType.OTHER, "双押左",
-                leftBase, leftBaseLane, leftFinal, leftFinalLane, "关联右=" + rightRef
+                logLevel, index + 1, total, NoteType.OTHER, "双押左",
+                leftBase, leftBaseLane, leftFinal, leftFinalLane, "关联右=" + simLine.getRefB()
         );
         noteLog.logNoteTranslated(
-                index + 1, total, NoteType.OTHER, "双押右",
-                rightBase, rightBaseLane, rightFinal, rightFinalLane, "关联左=" + leftRef
+                logLevel, index + 1, total, NoteType.OTHER, "双押右",
+                rightBase, rightBaseLane, rightFinal, rightFinalLane, "关联左=" + simLine.getRefA()
         );
     }
 
+    private void addSimLineEnd(ChartEntity note, NoteIndex positions, DevChart translated) {
+        if (positions.get(note.getBeat(), note.getLane()) >= 0) {
+            return;
+        }
+        int single = translated.addSingle(note.getBeat(), note.getLane(), note.getKind() == Archetype.FLICK_NOTE);
+        positions.putIfAbsent(note.getBeat(), note.getLane(), single);
+    }
+
     // ------------------------------ 辅助：整合滑键为开发态Slide（带connections） ------------------------------
-    private List<ObjectNode> generateSlideObjects(List<JsonNode> slideRelated, 
-                                                 Map<String, JsonNode> noteMap, 
-                                                 NoteLogUtil noteLog) {
-        List<ObjectNode> slideNotes = new ArrayList<>();
-        // 按起始节点分组
-        Map<String, List<JsonNode>> slideGroups = new HashMap<>();
-        for (JsonNode note : slideRelated) {
-            String name = note.has("name") ? note.get("name").asText() : "";
-            JsonNode data = note.get("data");
-            String firstRef = (data != null && data.has("first")) ? data.get("first").get("ref").asText() : "";
-            String groupKey = firstRef.isEmpty() ? name : firstRef;
-            slideGroups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(note);
-        }
-
-        // 处理每个Slide组
-        for (Map.Entry<String, List<JsonNode>> entry : slideGroups.entrySet()) {
-            List<JsonNode> slideNodes = entry.getValue();
-            // 按beat排序（保证滑动顺序）
-            slideNodes.sort(Comparator.comparingDouble(this::getBaseBeat));
-
-            // 构建connections（开发态 + 微调）
-            ArrayNode connections = OBJECT_MAPPER.createArrayNode();
-            for (JsonNode node : slideNodes) {
-                ObjectNode conn = OBJECT_MAPPER.createObjectNode();
-                conn.put("beat", getBaseBeat(node) + reverseVerticalOffset);
-                conn.put("lane", getBaseLane(node) + reverseLaneOffset);
-                connections.add(conn);
+    private void generateSlideObjects(List<ChartEntity> slideRelated, DevChart translated,
+                                      TranslateOptions options, LogLevel logLevel) {
+        // 沿引用图一次遍历重建每条滑键的有序节点
+        List<List<ChartEntity>> slideChains = SLIDE_CHAIN_BUILDER.build(slideRelated);
+
+        // 处理每个Slide组：节点依次写入滑键节点表
+        for (List<ChartEntity> slideNodes : slideChains) {
+            int slide = translated.beginSlide();
+            for (ChartEntity node : slideNodes) {
+                translated.addSlidePoint(slide, node.getBeat(), node.getLane());
             }
 
-            // 生成开发态Slide
-            ObjectNode slide = OBJECT_MAPPER.createObjectNode();
-            slide.put("type", "Slide");
-            slide.set("connections", connections);
-            slideNotes.add(slide);
-
-            // 日志记录
-            noteLog.logTranslateStart("生成Slide | 起始beat：" + connections.get(0).get("beat").asDouble() 
-                                     + " | 节点数：" + connections.size());
+            // 日志记录（日志关闭时不拼接字符串）
+            if (logLevel != LogLevel.OFF) {
+                noteLog.logTranslateStart("生成Slide | 起始beat：" + (slideNodes.get(0).getBeat() + options.verticalOffset())
+                                         + " | 节点数：" + slideNodes.size());
+            }
         }
-        return slideNotes;
     }
 
     // ------------------------------ 辅助：已编译archetype → 开发态type映射 ------------------------------
-    private String mapToDevType(String archetype) {
-        return switch (archetype) {
-            case "TapNote", "FlickNote" -> "Single";
-            case "SlideStartNote", "SlideTickNote", "SlideEndNote", 
-                 "StraightSlideConnector", "CurvedSlideConnector" -> "Slide";
-            case "SimLine" -> "SimLine";
-            case "IgnoredNote" -> "Ignored";
-            case "#BPM_CHANGE" -> "BPM";
+    private String mapToDevType(Archetype kind, String archetype, LogLevel logLevel) {
+        return switch (kind) {
+            case TAP_NOTE, FLICK_NOTE -> "Single";
+            case SLIDE_START_NOTE, SLIDE_TICK_NOTE, SLIDE_END_NOTE,
+                 STRAIGHT_SLIDE_CONNECTOR, CURVED_SLIDE_CONNECTOR -> "Slide";
+            case SIM_LINE -> "SimLine";
+            case IGNORED_NOTE -> "Ignored";
+            case BPM_CHANGE -> "BPM";
             // 新增：识别谱面元数据类型，标记为"Meta"（或直接跳过）
-            case "Initialization", "Stage" -> "Meta"; 
+            case INITIALIZATION, STAGE -> "Meta";
             default -> {
-                noteLog.logError("未定义开发态类型 | archetype：" + archetype, null);
+                if (logLevel != LogLevel.OFF) noteLog.logError("未定义开发态类型 | archetype：" + archetype, null);
                 yield archetype;
             }
         };
     }
 
+    // ------------------------------ 谱面对比（已编译或开发态均可，已编译谱面先按相同参数转成开发态再比较） ------------------------------
     /**
- * 从data数组里，根据name找对应的value（核心：遍历数组匹配name）
- */
-    private double getFieldValueByName(JsonNode dataArray, String targetName) {
-        if (dataArray == null || !dataArray.isArray()) {
-            return 0.0;
+     * 结构对比两个谱面，在控制台逐条打印新增/删除/移动/修改的音符
+     */
+    public ChartDiff.Result diffFiles(File oldFile, File newFile, TranslateOptions options) throws IOException {
+        // 读入时不记逐音符日志
+        TranslateOptions quiet = options.withLogLevel(LogLevel.OFF);
+        DevChart oldChart = loadChart(oldFile, quiet);
+        DevChart newChart = loadChart(newFile, quiet);
+
+        long start = System.nanoTime();
+        ChartDiff.Result result = CHART_DIFF.diff(oldChart, newChart);
+        long diffNanos = System.nanoTime() - start;
+
+        for (int i = 0; i < result.size(); i++) {
+            System.out.println(result.format(i));
+        }
+        if (logLevel(options) != LogLevel.OFF) {
+            noteLog.logTranslateStart("谱面对比 | " + oldFile.getAbsolutePath() + " → " + newFile.getAbsolutePath()
+                    + " | " + result.summary());
         }
-        for (JsonNode item : dataArray) {
-            if (item.has("name") && item.get("name").asText().equals(targetName) && item.has("value")) {
-                return item.get("value").asDouble();
+        System.out.printf("对比完成 | %s → %s | %s | 对比耗时：%.1fms%n",
+                oldFile.getName(), newFile.getName(), result.summary(), diffNanos / 1e6);
+        return result;
+    }
+
+    /**
+     * 读入谱面为开发态中间表示（根节点为数组的是开发态谱面，原样读取；否则按已编译谱面转译并应用微调）
+     */
+    public DevChart loadChart(File file, TranslateOptions options) throws IOException {
+        try (ChartInput input = ChartInput.read(file)) {
+            if (isDevChart(input)) {
+                return DEV_CHART_READER.read(input);
             }
+            return translateEntities(CHART_READER.readAll(input), options);
         }
-        return 0.0;
     }
 
-    // ------------------------------ 批量反向编译（复用单文件逻辑） ------------------------------
-    public void translateBatchFiles(String inputDir, String outputDir) throws Exception {
-        File inputFolder = new File(inputDir);
-        if (!inputFolder.exists() || !inputFolder.isDirectory()) {
-            String error = "输入路径无效：" + inputDir;
-            noteLog.logError(error, null);
-            throw new RuntimeException(error);
+    // ------------------------------ 辅助：根节点是否为数组（跳过空白和UTF-8 BOM，gzip先解压） ------------------------------
+    private static boolean isDevChart(ChartInput input) throws IOException {
+        try (InputStream in = ChartReader.open(input.openStream())) {
+            int c;
+            do {
+                c = in.read();
+            } while (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == 0xEF || c == 0xBB || c == 0xBF);
+            return c == '[';
         }
+    }
 
-        File outputFolder = new File(outputDir);
-        if (!outputFolder.exists()) outputFolder.mkdirs();
+    // ------------------------------ 批量转译（复用单文件逻辑） ------------------------------
+    public void translateBatchFiles(String inputDir, String outputDir, TranslateOptions options) throws Exception {
+        translateBatchFiles(inputDir, outputDir, 1, false, options);
+    }
 
-        noteLog.createNewLogFile();
-        noteLog.logTranslateStart("批量反向编译开始 | 输入：" + inputFolder.getAbsolutePath());
+    /**
+     * 并行批量转译（文件夹 → 文件夹）
+     *
+     * @param threads        转换阶段工作线程数（小于等于0时使用全部CPU核心）
+     * @param virtualThreads 转换阶段是否使用虚拟线程（JDK 21+，不支持时回退到平台线程）
+     */
+    public void translateBatchFiles(String inputDir, String outputDir, int threads, boolean virtualThreads,
+                                    TranslateOptions options) throws Exception {
+        translateBatch(new File(inputDir), new File(outputDir), threads, virtualThreads, options);
+    }
 
-        File[] jsonFiles = inputFolder.listFiles(file -> file.isFile() && FileUtil.isJsonFile(file));
-        if (jsonFiles == null || jsonFiles.length == 0) {
-            String warn = "无JSON文件：" + inputDir;
-            noteLog.logError(warn, null);
-            System.out.println(warn);
-            return;
+    /**
+     * 并行批量转译（读取 / 转换 / 写出流水线，见BatchPipeline）
+     * 输入为文件夹或谱面包（.zip/.tar.gz/.tgz），输出为文件夹或谱面包（按输出路径后缀判断）
+     * 谱面包按条目流式读写，不解压到磁盘；增量模式只支持文件夹 → 文件夹
+     * 只校验模式下不写出任何谱面，也不做增量判断
+     *
+     * @param threads        转换阶段工作线程数（小于等于0时使用全部CPU核心）
+     * @param virtualThreads 转换阶段是否使用虚拟线程（JDK 21+，不支持时回退到平台线程）
+     * @return 失败的谱面数（只校验模式下包括校验出错误的谱面）
+     */
+    public int translateBatch(File input, File output, int threads, boolean virtualThreads,
+                              TranslateOptions options) throws Exception {
+        boolean logEnabled = logLevel(options) != LogLevel.OFF;
+        boolean validateOnly = options.validateOnly();
+        String label = validateOnly ? "校验" : options.direction().label();
+        boolean archiveInput = ArchiveUtil.isArchiveFile(input);
+        boolean archiveOutput = ArchiveType.of(output.getName()) != null;
+        if (!archiveInput && !input.isDirectory()) {
+            String error = "输入路径无效：" + input.getPath();
+            if (logEnabled) noteLog.logError(error, null);
+            throw new RuntimeException(error);
         }
 
-        int totalFile = jsonFiles.length;
-        int success = 0, fail = 0, totalNote = 0;
+        if (!archiveOutput && !output.exists() && (!validateOnly || options.metrics())) output.mkdirs();
 
-        noteLog.logTranslateStart("待处理文件数：" + totalFile);
-        System.out.printf("批量反向编译开始 | 共%d个文件%n", totalFile);
+        if (logEnabled) noteLog.logTranslateStart("批量" + label + "开始 | 输入：" + input.getAbsolutePath());
 
-        for (int i = 0; i < totalFile; i++) {
-            File file = jsonFiles[i];
-            System.out.printf("进度：%d/%d | 处理：%s...%n", i + 1, totalFile, file.getName());
+        File[] jsonFiles = null;
+        if (!archiveInput) {
+            jsonFiles = input.listFiles(FileUtil::isChartFile);
+            if (jsonFiles == null || jsonFiles.length == 0) {
+                String warn = "无谱面文件（.json/.json.gz/Sonolus导出文件）：" + input.getPath();
+                if (logEnabled) noteLog.logError(warn, null);
+                System.out.println(warn);
+                return 0;
+            }
+            // 按名称排序：处理顺序固定，输出名称冲突时总是保留同一个谱面
+            Arrays.sort(jsonFiles);
+        }
 
-            try {
-                translateSingleFile(file, outputDir);
-                success++;
-                JsonNode root = OBJECT_MAPPER.readTree(file);
-                JsonNode entities = root.get("entities");
-                if (entities != null && entities.isArray()) totalNote += entities.size();
-            } catch (Exception e) {
+        // 谱面包条目数事先未知，按线程数上限启动
+        int workerCount = ThreadUtil.resolveThreads(threads);
+        if (jsonFiles != null) workerCount = Math.min(workerCount, jsonFiles.length);
+        int success = 0, fail = 0, skipped = 0, totalNote = 0;
+        TranslateManifest manifest = null;
+        if (options.incremental() && !validateOnly) {
+            if (archiveInput || archiveOutput) {
+                System.out.println("谱面包模式不支持增量转译，将全部转译");
+            } else {
+                manifest = TranslateManifest.load(output);
+            }
+        }
+
+        String inputDesc = archiveInput ? "谱面包" + input.getName() : "共" + jsonFiles.length + "个文件";
+        if (logEnabled) {
+            noteLog.logTranslateStart("待处理：" + inputDesc + " | 工作线程：" + workerCount
+                    + (virtualThreads ? "（虚拟线程）" : ""));
+        }
+        System.out.printf("批量%s开始 | %s | 线程数：%d%n", label, inputDesc, workerCount);
+
+        // 读取 → 转换 → 写出三段流水线：磁盘读写与CPU转换同时进行，阶段之间用有界队列背压
+        TranslateMetrics metrics = options.metrics() ? new TranslateMetrics() : null;
+        BatchPipeline pipeline = new BatchPipeline(this, options, manifest, metrics, output);
+        List<BatchPipeline.Result> results;
+        try (ArchiveInputStream<? extends ArchiveEntry> archiveIn = archiveInput ? ArchiveUtil.openReader(input) : null;
+             ArchiveWriter archiveOut = archiveOutput && !validateOnly ? ArchiveUtil.openWriter(output) : null) {
+            BatchPipeline.Source source = archiveInput
+                    ? archiveSource(input, archiveIn)
+                    : fileSource(jsonFiles, logEnabled);
+            BatchPipeline.Sink sink = archiveOutput
+                    ? (item, chart) -> writeArchiveEntry(item.name(), chart, archiveOut, output, options)
+                    : (item, chart) -> writeOutput(item.name(), chart, output.getPath(), options);
+            results = pipeline.run(source, sink, workerCount, virtualThreads);
+        }
+
+        for (BatchPipeline.Result result : results) {
+            if (result.failure() != null) {
                 fail++;
-                noteLog.logError("文件失败：" + file.getName() + " | 原因：" + e.getMessage(), e);
-                System.err.println("失败：" + file.getName() + " → " + e.getMessage());
+                Throwable cause = result.failure();
+                if (logEnabled) {
+                    noteLog.logError("文件失败：" + result.name() + " | 原因：" + cause.getMessage(),
+                            cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                }
+                System.err.println("失败：" + result.name() + " → " + cause.getMessage());
+                continue;
+            }
+            totalNote += result.entityCount();
+            if (result.skipped()) {
+                skipped++;
+            } else {
+                success++;
             }
         }
 
-        noteLog.logTranslateComplete(
-                totalNote, "批量反向编译完成 | 成功：" + success + " 失败：" + fail + " 总音符：" + totalNote
-        );
-        System.out.printf("批量结束 | 成功：%d 失败：%d 总音符：%d%n", success, fail, totalNote);
-        System.out.println("日志路径：logs/（时间命名）");
+        if (metrics != null) saveMetrics(metrics, output, logEnabled);
+        if (manifest != null) {
+            Set<String> inputNames = new HashSet<>();
+            for (File file : jsonFiles) inputNames.add(file.getName());
+            manifest.save(inputNames);
+        }
+
+        if (logEnabled) {
+            noteLog.logTranslateComplete(
+                    totalNote, "批量" + label + "完成 | 成功：" + success + " 失败：" + fail + " 跳过：" + skipped + " 总音符：" + totalNote
+            );
+        }
+        System.out.printf("批量结束 | 成功：%d 失败：%d 跳过：%d 总音符：%d%n", success, fail, skipped, totalNote);
+        if (archiveOutput && !validateOnly) {
+            System.out.println("输出谱面包：" + output.getAbsolutePath());
+        }
+        if (noteLog.getCurrentLogFilePath() != null) {
+            System.out.println("日志路径：" + noteLog.getCurrentLogFilePath());
+        }
+        return fail;
+    }
+
+    // ------------------------------ 辅助：保存指标报告（保存失败只提示，不影响转译结果） ------------------------------
+    private void saveMetrics(TranslateMetrics metrics, File output, boolean logEnabled) {
+        try {
+            File report = metrics.save(output);
+            if (logEnabled) noteLog.logTranslateStart("指标报告：" + report.getAbsolutePath());
+            System.out.println("指标报告：" + report.getAbsolutePath());
+        } catch (IOException e) {
+            if (logEnabled) noteLog.logError("指标报告保存失败：" + e.getMessage(), e);
+            System.err.println("指标报告保存失败：" + e.getMessage());
+        }
+    }
+
+    // ------------------------------ 辅助：文件夹来源（逐个文件读入，单个文件读取失败不影响其他文件） ------------------------------
+    private BatchPipeline.Source fileSource(File[] files, boolean logEnabled) {
+        return new BatchPipeline.Source() {
+            private int next;
+
+            @Override
+            public int size() {
+                return files.length;
+            }
+
+            @Override
+            public BatchPipeline.SourceItem next() {
+                if (next == files.length) {
+                    return null;
+                }
+                File file = files[next++];
+                try {
+                    return new BatchPipeline.SourceItem(file.getName(), file.getAbsolutePath(), readInput(file, logEnabled), null);
+                } catch (RuntimeException e) {
+                    return new BatchPipeline.SourceItem(file.getName(), file.getAbsolutePath(), null, e);
+                }
+            }
+        };
+    }
+
+    // ------------------------------ 辅助：谱面包来源（按条目顺序读入，跳过文件夹和非谱面条目） ------------------------------
+    private BatchPipeline.Source archiveSource(File archive, ArchiveInputStream<? extends ArchiveEntry> in) {
+        return new BatchPipeline.Source() {
+            @Override
+            public int size() {
+                return -1;
+            }
+
+            @Override
+            public BatchPipeline.SourceItem next() throws IOException {
+                ArchiveEntry entry;
+                while ((entry = in.getNextEntry()) != null) {
+                    String name = entry.getName();
+                    // macOS打包时附带的资源文件不是谱面
+                    if (entry.isDirectory() || name.startsWith("__MACOSX/") || !FileUtil.isChartName(name)) {
+                        continue;
+                    }
+                    String path = archive.getAbsolutePath() + "!/" + name;
+                    if (!ArchiveUtil.isSafeEntryName(name)) {
+                        return new BatchPipeline.SourceItem(name, path, null, new RuntimeException("条目路径不安全：" + name));
+                    }
+                    if (!in.canReadEntryData(entry)) {
+                        return new BatchPipeline.SourceItem(name, path, null, new RuntimeException("条目已加密或压缩方式不支持：" + name));
+                    }
+                    ChartInput input = ChartInput.read(in, entry.getSize());
+                    if (FileUtil.hasNoExtension(name) && !input.isGzip()) {
+                        input.close(); // 无后缀且不是gzip：不是Sonolus导出文件
+                        continue;
+                    }
+                    return new BatchPipeline.SourceItem(name, path, input, null);
+                }
+                return null;
+            }
+        };
+    }
+
+    // ------------------------------ 辅助：本次调用实际生效的日志级别（不超过日志文件本身的级别） ------------------------------
+    LogLevel logLevel(TranslateOptions options) {
+        return noteLog.getLevel().min(options.logLevel());
     }
 }
\ No newline at end of file
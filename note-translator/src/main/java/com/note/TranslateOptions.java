@@ -0,0 +1,119 @@
+package com.note;
+
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 单次转译参数（不可变，可在多个线程间共享）
+ * 同一个NoteTranslator实例可以用不同的TranslateOptions并发转译，互不影响
+ *
+ * @param verticalOffset 时间微调（单位：拍）：正数=延后，负数=提前
+ * @param laneOffset     轨道微调（单位：轨）：正数=右移，负数=左移
+ * @param timeOffsetMs   时间微调（单位：毫秒）：正数=延后，负数=提前；按谱面BPM换算，BPM变更保持原位
+ * @param compact        输出格式：false=带缩进，true=紧凑JSON（无缩进换行，体积更小）
+ * @param incremental    批量转译是否增量（跳过内容和参数都未变化的谱面）
+ * @param logLevel       本次转译的日志详细程度（不会超过转译器日志本身的级别）
+ * @param metrics        是否在输出位置生成各阶段耗时/字节数/内存的指标报告（JSON + CSV）
+ * @param direction      转译方向：反向编译（已编译 → 开发态）或正向编译（开发态 → 已编译），微调参数在正向编译时按相反方向撤销
+ * @param validateOnly   只校验不输出：解析并校验谱面后跳过转译和写出（有错误的谱面计为失败）
+ */
+public record TranslateOptions(double verticalOffset, int laneOffset, double timeOffsetMs, boolean compact,
+                               boolean incremental, LogLevel logLevel, boolean metrics, Direction direction,
+                               boolean validateOnly) {
+    // ===================== 【反向编译-开发态微调参数配置区】（直接修改此处即可调整） =====================
+    // 时间微调（单位：拍）：默认0（无偏移）
+    public static final double DEFAULT_VERTICAL_OFFSET = 0.0;
+    // 轨道微调（单位：轨）：默认右移3轨
+    public static final int DEFAULT_LANE_OFFSET = 3;
+    // 时间微调（单位：毫秒）：默认0（无偏移），与按拍微调叠加（先按毫秒，再按拍）
+    public static final double DEFAULT_TIME_OFFSET_MS = 0.0;
+
+    // 输出格式版本（转译逻辑改变输出时递增，使增量清单中的旧记录失效）
+    private static final int OUTPUT_FORMAT_VERSION = 2;
+
+    /**
+     * 转译方向
+     */
+    public enum Direction {
+        // 已编译（Sonolus entities）→ 开发态（bestdori）
+        REVERSE("反向编译"),
+        // 开发态（bestdori）→ 已编译（Sonolus entities）
+        FORWARD("正向编译");
+
+        private final String label;
+
+        Direction(String label) {
+            this.label = label;
+        }
+
+        /**
+         * 日志和控制台输出中使用的名称
+         */
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 默认参数：反向编译、默认微调、缩进输出、非增量、逐音符日志、不生成指标报告、正常输出
+     */
+    public static final TranslateOptions DEFAULTS = new TranslateOptions(
+            DEFAULT_VERTICAL_OFFSET, DEFAULT_LANE_OFFSET, DEFAULT_TIME_OFFSET_MS, false, false, LogLevel.FULL, false,
+            Direction.REVERSE, false);
+
+    public TranslateOptions {
+        if (logLevel == null) {
+            throw new IllegalArgumentException("日志级别不能为空");
+        }
+        if (direction == null) {
+            throw new IllegalArgumentException("转译方向不能为空");
+        }
+    }
+
+    public TranslateOptions withOffset(double verticalOffset, int laneOffset) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withTimeOffset(double timeOffsetMs) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withCompact(boolean compact) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withIncremental(boolean incremental) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withLogLevel(LogLevel logLevel) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withMetrics(boolean metrics) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withDirection(Direction direction) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    public TranslateOptions withValidateOnly(boolean validateOnly) {
+        return new TranslateOptions(verticalOffset, laneOffset, timeOffsetMs, compact, incremental, logLevel, metrics, direction,
+                validateOnly);
+    }
+
+    /**
+     * 影响输出内容的参数摘要（增量清单据此判断参数是否变化）
+     */
+    public String settingsKey() {
+        return "format=" + OUTPUT_FORMAT_VERSION + ";direction=" + direction + ";vertical=" + verticalOffset
+                + ";lane=" + laneOffset + ";timeMs=" + timeOffsetMs + ";compact=" + compact;
+    }
+}
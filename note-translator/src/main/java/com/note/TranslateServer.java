@@ -0,0 +1,179 @@
+package com.note;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import com.note.TranslateOptions.Direction;
+import com.note.chart.BpmTimeline;
+import com.note.chart.ChartEntity;
+import com.note.chart.DevChart;
+import com.note.util.NoteLogUtil.LogLevel;
+import com.note.util.ThreadUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 本地HTTP转译服务（基于JDK自带com.sun.net.httpserver，无额外依赖）
+ * POST /translate：请求体为已编译谱面（JSON或gzip），响应体为开发态JSON
+ * POST /compile：请求体为开发态谱面（JSON或gzip），响应体为已编译谱面JSON（正向编译，按相同参数撤销微调）
+ * 查询参数：verticalOffset（拍）、laneOffset（轨）、timeOffsetMs（毫秒）、compact（true/false），对应TranslateOptions的同名字段
+ * GET /health：健康检查
+ * 错误响应为纯文本：400=参数或JSON格式错误 422=谱面内容无法转译（如滑键不足两个节点、BPM无效、没有BPM却要求毫秒微调） 500=其他转译错误
+ * 转译日志级别沿用命令行的--log-level（所有请求写入同一个日志文件）
+ */
+public class TranslateServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // 所有请求共享一个转译器（无状态），参数随请求传入
+    private final NoteTranslator translator;
+    private final LogLevel logLevel;
+
+    /**
+     * 在127.0.0.1上启动服务（端口为0时自动分配）
+     *
+     * @param threads  处理线程数（虚拟线程可用时忽略，每个请求一个虚拟线程）
+     * @param logLevel 转译日志级别（OFF时不创建日志文件）
+     */
+    public TranslateServer(int port, int threads, LogLevel logLevel) throws IOException {
+        this.logLevel = logLevel;
+        translator = new NoteTranslator(logLevel);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = ThreadUtil.newWorkerPool(threads, true, "translate-http");
+        server.setExecutor(executor);
+        server.createContext("/translate", exchange -> handleTranslate(exchange, Direction.REVERSE));
+        server.createContext("/compile", exchange -> handleTranslate(exchange, Direction.FORWARD));
+        server.createContext("/health", this::handleHealth);
+    }
+
+    public void start() {
+        server.start();
+        System.out.printf("转译服务已启动 | http://127.0.0.1:%d/translate（Ctrl+C退出）%n", getPort());
+    }
+
+    /**
+     * 实际监听端口
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        translator.close();
+    }
+
+    // ------------------------------ POST /translate、POST /compile ------------------------------
+    private void handleTranslate(HttpExchange exchange, Direction direction) throws IOException {
+        try (exchange) {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendText(exchange, 405, "只支持POST");
+                return;
+            }
+
+            // 每个请求构造自己的不可变参数，并发请求之间互不影响
+            DevChart chart;
+            int entityCount;
+            try {
+                TranslateOptions options = parseOptions(exchange.getRequestURI().getRawQuery()).withDirection(direction);
+
+                if (direction == Direction.FORWARD) {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        chart = translator.readDevChart(body);
+                    }
+                    entityCount = chart.getNoteCount();
+                    translator.compileChart(chart, options);
+                } else {
+                    List<ChartEntity> originalNotes;
+                    try (InputStream body = exchange.getRequestBody()) {
+                        originalNotes = translator.readEntities(body);
+                    }
+                    entityCount = originalNotes.size();
+                    chart = translator.translateEntities(originalNotes, options);
+                }
+                requireBpmForTimeOffset(chart, options);
+
+                // 转译成功后再发送响应头，响应体以chunked方式边序列化边发送
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.getResponseHeaders().set("X-Entity-Count", Integer.toString(entityCount));
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    translator.writeChart(chart, out, options);
+                }
+            } catch (NumberFormatException e) {
+                sendText(exchange, 400, "参数格式错误：" + e.getMessage());
+            } catch (IOException e) {
+                sendText(exchange, 400, "谱面解析失败：" + e.getMessage());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // 谱面能解析但内容无法转译（如滑键不足两个节点、没有BPM却要求毫秒微调）
+                sendText(exchange, 422, "谱面无法转译：" + e.getMessage());
+            } catch (RuntimeException e) {
+                // 其他意外错误也要给出响应，不能让客户端只看到连接被重置
+                sendText(exchange, 500, "转译失败：" + e);
+            }
+        }
+    }
+
+    // ------------------------------ GET /health ------------------------------
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sendText(exchange, 200, "ok");
+        }
+    }
+
+    // ------------------------------ 辅助：发送纯文本响应（响应头已发送时忽略） ------------------------------
+    private void sendText(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // ------------------------------ 辅助：要求毫秒微调的谱面必须有BPM（转译器遇到这种谱面只记日志并跳过微调，服务模式改为报错） ------------------------------
+    private void requireBpmForTimeOffset(DevChart chart, TranslateOptions options) {
+        if (options.timeOffsetMs() != 0.0 && BpmTimeline.of(chart).isEmpty()) {
+            throw new IllegalArgumentException("谱面没有BPM变更，无法按毫秒微调：" + options.timeOffsetMs() + "ms");
+        }
+    }
+
+    // ------------------------------ 辅助：查询参数 → 转译参数（未给出的使用默认值） ------------------------------
+    private TranslateOptions parseOptions(String rawQuery) {
+        Map<String, String> query = parseQuery(rawQuery);
+        TranslateOptions defaults = TranslateOptions.DEFAULTS;
+        return defaults.withLogLevel(logLevel)
+                .withOffset(
+                        query.containsKey("verticalOffset") ? Double.parseDouble(query.get("verticalOffset")) : defaults.verticalOffset(),
+                        query.containsKey("laneOffset") ? Integer.parseInt(query.get("laneOffset")) : defaults.laneOffset())
+                .withTimeOffset(query.containsKey("timeOffsetMs") ? Double.parseDouble(query.get("timeOffsetMs")) : defaults.timeOffsetMs())
+                .withCompact(Boolean.parseBoolean(query.getOrDefault("compact", "false")));
+    }
+
+    // ------------------------------ 辅助：解析查询参数 ------------------------------
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
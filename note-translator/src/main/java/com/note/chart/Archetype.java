@@ -0,0 +1,90 @@
+package com.note.chart;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 已编译谱面的archetype（解码时每种名称只识别一次，之后按枚举分派，不再逐个实体比较字符串）
+ * 未登记的名称按原有规则归类：以Slide开头的算滑键音符，包含Connector的算连接器，其余为OTHER
+ */
+public enum Archetype {
+    TAP_NOTE("TapNote"),
+    FLICK_NOTE("FlickNote"),
+    SLIDE_START_NOTE("SlideStartNote"),
+    SLIDE_TICK_NOTE("SlideTickNote"),
+    SLIDE_END_NOTE("SlideEndNote"),
+    STRAIGHT_SLIDE_CONNECTOR("StraightSlideConnector"),
+    CURVED_SLIDE_CONNECTOR("CurvedSlideConnector"),
+    SIM_LINE("SimLine"),
+    IGNORED_NOTE("IgnoredNote"),
+    LONG_NOTE("LongNote"),
+    EFFECT_NOTE("EffectNote"),
+    BPM_CHANGE("#BPM_CHANGE"),
+    INITIALIZATION("Initialization"),
+    STAGE("Stage"),
+    // 未登记的名称
+    OTHER_SLIDE_NOTE(null),
+    OTHER_CONNECTOR(null),
+    OTHER(null);
+
+    private static final Map<String, Archetype> BY_NAME = new HashMap<>();
+
+    static {
+        for (Archetype archetype : values()) {
+            if (archetype.archetypeName != null) BY_NAME.put(archetype.archetypeName, archetype);
+        }
+    }
+
+    private final String archetypeName;
+
+    Archetype(String archetypeName) {
+        this.archetypeName = archetypeName;
+    }
+
+    /**
+     * 谱面中的archetype名称（未登记的分类为null）
+     */
+    public String archetypeName() {
+        return archetypeName;
+    }
+
+    /**
+     * 名称 → 枚举（每个谱面中每种名称只调用一次）
+     */
+    public static Archetype of(String name) {
+        Archetype archetype = BY_NAME.get(name);
+        if (archetype != null) return archetype;
+        if (name.contains("Connector")) return OTHER_CONNECTOR;
+        if (name.startsWith("Slide")) return OTHER_SLIDE_NOTE;
+        return OTHER;
+    }
+
+    /**
+     * 开发态type → 已编译archetype名称（正向编译用，与转译时的映射互逆；未登记的type原样作为archetype）
+     */
+    public static String fromDevType(String devType) {
+        return switch (devType) {
+            case "Single" -> TAP_NOTE.archetypeName;
+            case "Ignored" -> IGNORED_NOTE.archetypeName;
+            case "BPM" -> BPM_CHANGE.archetypeName;
+            default -> devType;
+        };
+    }
+
+    /**
+     * 是否为滑键相关实体（滑键音符或连接器，后续整合为Slide）
+     */
+    public boolean isSlide() {
+        return switch (this) {
+            case SLIDE_START_NOTE, SLIDE_TICK_NOTE, SLIDE_END_NOTE, OTHER_SLIDE_NOTE -> true;
+            default -> isConnector();
+        };
+    }
+
+    /**
+     * 是否为滑键连接器（只作为边，不是滑键节点）
+     */
+    public boolean isConnector() {
+        return this == STRAIGHT_SLIDE_CONNECTOR || this == CURVED_SLIDE_CONNECTOR || this == OTHER_CONNECTOR;
+    }
+}
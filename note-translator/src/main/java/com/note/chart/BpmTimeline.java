@@ -0,0 +1,157 @@
+package com.note.chart;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * BPM时间轴（拍 ↔ 秒换算）
+ * 每个谱面构建一次：BPM变更按拍排序存入基本类型数组，并预先算好每个变更点的累计时间（前缀和），
+ * 之后任意拍 → 秒、秒 → 拍的换算都只需一次二分查找，O(log n)
+ * 第一个BPM之前的部分沿用第一个BPM；谱面没有BPM变更时时间轴为空，不能换算
+ */
+public class BpmTimeline {
+    private static final BpmTimeline EMPTY = new BpmTimeline(new double[0], new double[0], new double[0]);
+
+    // 变更点的拍数（严格递增）/ 该点之后的BPM / 该点的累计时间（秒，beat=0对应0秒）
+    private final double[] beats;
+    private final double[] bpms;
+    private final double[] times;
+
+    private BpmTimeline(double[] beats, double[] bpms, double[] times) {
+        this.beats = beats;
+        this.bpms = bpms;
+        this.times = times;
+    }
+
+    /**
+     * 从开发态谱面的BPM变更构建时间轴（同一拍有多个BPM时以谱面中靠后的为准）
+     *
+     * @throws IllegalArgumentException 谱面中有无效的BPM（≤0、NaN或无穷大）
+     */
+    public static BpmTimeline of(DevChart chart) {
+        int count = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_BPM) count++;
+        }
+        double[] beats = new double[count];
+        double[] bpms = new double[count];
+        int n = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_BPM) {
+                beats[n] = chart.getBeat(i);
+                bpms[n] = chart.getBpm(i);
+                n++;
+            }
+        }
+        return of(beats, bpms, count);
+    }
+
+    /**
+     * 从BPM变更构建时间轴（数组会被原地排序）
+     *
+     * @param count 有效的变更数
+     * @throws IllegalArgumentException 有BPM不是正的有限数，或拍数不是有限数（否则换算结果会是Infinity/NaN）
+     */
+    public static BpmTimeline of(double[] beats, double[] bpms, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        for (int i = 0; i < count; i++) {
+            if (!(bpms[i] > 0) || Double.isInfinite(bpms[i]) || !Double.isFinite(beats[i])) {
+                throw new IllegalArgumentException("BPM无效，无法换算时间：BPM=" + bpms[i] + " | 拍=" + beats[i]);
+            }
+        }
+        sortByBeat(beats, bpms, count);
+
+        // 同一拍的重复变更只保留最后一个（排序是稳定的，靠后的即谱面中靠后的）
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size > 0 && beats[size - 1] == beats[i]) {
+                bpms[size - 1] = bpms[i];
+            } else {
+                beats[size] = beats[i];
+                bpms[size] = bpms[i];
+                size++;
+            }
+        }
+
+        // 前缀和：每个变更点的累计时间，以beat=0为0秒（第一个变更点之前按第一个BPM外推）
+        double[] times = new double[size];
+        times[0] = beats[0] * 60.0 / bpms[0];
+        for (int i = 1; i < size; i++) {
+            times[i] = times[i - 1] + (beats[i] - beats[i - 1]) * 60.0 / bpms[i - 1];
+        }
+        return new BpmTimeline(Arrays.copyOf(beats, size), Arrays.copyOf(bpms, size), times);
+    }
+
+    /**
+     * 时间轴是否为空（谱面没有BPM变更）
+     */
+    public boolean isEmpty() {
+        return beats.length == 0;
+    }
+
+    /**
+     * BPM变更点数量（去重后）
+     */
+    public int size() {
+        return beats.length;
+    }
+
+    /**
+     * 拍 → 秒
+     */
+    public double timeAt(double beat) {
+        int i = segment(beats, beat);
+        return times[i] + (beat - beats[i]) * 60.0 / bpms[i];
+    }
+
+    /**
+     * 秒 → 拍
+     */
+    public double beatAt(double seconds) {
+        int i = segment(times, seconds);
+        return beats[i] + (seconds - times[i]) * bpms[i] / 60.0;
+    }
+
+    /**
+     * 指定拍所在区间的BPM
+     */
+    public double bpmAt(double beat) {
+        return bpms[segment(beats, beat)];
+    }
+
+    // ------------------------------ 辅助：二分查找所在区间（最后一个不大于key的变更点，key在第一个点之前时取第一个） ------------------------------
+    private int segment(double[] keys, double key) {
+        if (keys.length == 0) {
+            throw new IllegalStateException("谱面没有BPM变更，无法换算时间");
+        }
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            // 未命中：插入点的前一个即所在区间
+            index = -index - 2;
+        }
+        return Math.max(index, 0);
+    }
+
+    // ------------------------------ 辅助：按拍对两个平行数组做稳定排序（已有序时直接返回；否则排序下标数组，O(n log n)） ------------------------------
+    private static void sortByBeat(double[] beats, double[] bpms, int count) {
+        int unsorted = 1;
+        while (unsorted < count && beats[unsorted - 1] <= beats[unsorted]) unsorted++;
+        if (unsorted == count) {
+            return;
+        }
+        // Arrays.sort对对象数组是稳定的归并排序，同一拍的变更保持谱面中的先后顺序
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> beats[i]));
+        double[] sortedBeats = new double[count];
+        double[] sortedBpms = new double[count];
+        for (int i = 0; i < count; i++) {
+            sortedBeats[i] = beats[order[i]];
+            sortedBpms[i] = bpms[order[i]];
+        }
+        System.arraycopy(sortedBeats, 0, beats, 0, count);
+        System.arraycopy(sortedBpms, 0, bpms, 0, count);
+    }
+}
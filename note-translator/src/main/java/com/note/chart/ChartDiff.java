@@ -0,0 +1,306 @@
+package com.note.chart;
+
+import java.util.Arrays;
+
+/**
+ * 谱面结构对比（两个开发态中间表示之间的音符增删改）
+ * 两边的音符（单键、滑键节点、BPM、其他类型）各自展开成一个long数组，键 = 量化拍数 + 轨道 + 类型 + 下标，
+ * 用基本类型排序后一次归并即可找出新增/删除的音符和数值变化的BPM；
+ * 再把同一拍上类型相同的一增一删配对为“移动”（只改了轨道），整体O(n log n)，排序之外不分配对象
+ */
+public class ChartDiff {
+    /**
+     * 每拍的量化刻度数（与NoteIndex一致，相差不到半个刻度的拍数视为同一拍）
+     */
+    public static final int BEAT_RESOLUTION = NoteIndex.BEAT_RESOLUTION;
+
+    // 展开后的音符类型（排序键中同一位置按此顺序排列）
+    private static final byte TYPE_SINGLE = 0;
+    private static final byte TYPE_FLICK = 1;
+    private static final byte TYPE_SLIDE = 2;
+    private static final byte TYPE_BPM = 3;
+    private static final byte TYPE_OTHER = 4;
+    private static final String[] TYPE_NAMES = {"Single", "Single(flick)", "Slide节点", "BPM", "其他"};
+
+    // 排序键的位布局：量化拍数28位 | 轨道8位 | 类型4位 | 下标24位（最高位取反后按有符号long排序即按无符号顺序）
+    private static final int INDEX_BITS = 24;
+    private static final int TYPE_BITS = 4;
+    private static final int LANE_BITS = 8;
+    private static final int TICK_BITS = 28;
+    private static final long TICK_BIAS = 1L << (TICK_BITS - 1);
+    private static final int LANE_BIAS = 1 << (LANE_BITS - 1);
+    private static final int POSITION_SHIFT = INDEX_BITS;
+    private static final int TICK_SHIFT = INDEX_BITS + TYPE_BITS + LANE_BITS;
+
+    private static final String META_DEV_TYPE = "Meta";
+
+    /**
+     * 变化类型
+     */
+    public enum Change {
+        ADDED("+ 新增"),
+        REMOVED("- 删除"),
+        MOVED("~ 移动"),
+        CHANGED("~ 修改");
+
+        private final String label;
+
+        Change(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final Change[] CHANGES = Change.values();
+
+    /**
+     * 对比两个谱面（不修改谱面）
+     *
+     * @throws IllegalArgumentException 音符数超过2^24或拍数/轨道超出排序键的表示范围
+     */
+    public Result diff(DevChart oldChart, DevChart newChart) {
+        Notes oldNotes = Notes.of(oldChart);
+        Notes newNotes = Notes.of(newChart);
+        Result result = new Result(oldNotes, newNotes);
+
+        // 第一遍：按位置归并，位置相同即为同一音符（BPM再比较数值）
+        IntList removed = new IntList();
+        IntList added = new IntList();
+        long[] a = oldNotes.keys;
+        long[] b = newNotes.keys;
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && position(a[i]) < position(b[j]))) {
+                removed.add(index(a[i++]));
+            } else if (i == a.length || position(a[i]) > position(b[j])) {
+                added.add(index(b[j++]));
+            } else {
+                int oldNote = index(a[i++]);
+                int newNote = index(b[j++]);
+                if (oldNotes.types[oldNote] == TYPE_BPM && oldNotes.bpms[oldNote] != newNotes.bpms[newNote]) {
+                    result.add(Change.CHANGED, oldNote, newNote);
+                }
+            }
+        }
+
+        // 第二遍：删除和新增都按拍有序，同一拍上类型相同的一删一增配对为移动（每拍的音符很少，组内直接两两比较）
+        boolean[] movedNew = new boolean[added.size];
+        IntList removedOnly = new IntList();
+        int groupStart = 0;
+        for (int r = 0; r < removed.size; r++) {
+            int oldNote = removed.values[r];
+            long tick = oldNotes.ticks(oldNote);
+            while (groupStart < added.size && newNotes.ticks(added.values[groupStart]) < tick) groupStart++;
+            int match = -1;
+            for (int k = groupStart; k < added.size && newNotes.ticks(added.values[k]) == tick; k++) {
+                if (!movedNew[k] && newNotes.types[added.values[k]] == oldNotes.types[oldNote]) {
+                    match = k;
+                    break;
+                }
+            }
+            if (match < 0) {
+                removedOnly.add(oldNote);
+            } else {
+                movedNew[match] = true;
+                result.add(Change.MOVED, oldNote, added.values[match]);
+            }
+        }
+        for (int r = 0; r < removedOnly.size; r++) {
+            result.add(Change.REMOVED, removedOnly.values[r], -1);
+        }
+        for (int k = 0; k < added.size; k++) {
+            if (!movedNew[k]) result.add(Change.ADDED, -1, added.values[k]);
+        }
+        return result;
+    }
+
+    // ------------------------------ 辅助：排序键的拆分（键已取反最高位，有符号比较即原顺序） ------------------------------
+    private static long position(long key) {
+        return key >> POSITION_SHIFT;
+    }
+
+    private static int index(long key) {
+        return (int) (key & ((1L << INDEX_BITS) - 1));
+    }
+
+    /**
+     * 对比结果（列式存放：变化类型 + 旧谱面音符 + 新谱面音符，按修改、移动、删除、新增的顺序，各类内部按拍排列）
+     */
+    public static final class Result {
+        private final Notes oldNotes;
+        private final Notes newNotes;
+        private final int[] counts = new int[CHANGES.length];
+        private int size;
+        private byte[] changes = new byte[16];
+        private int[] oldIndexes = new int[16];
+        private int[] newIndexes = new int[16];
+
+        private Result(Notes oldNotes, Notes newNotes) {
+            this.oldNotes = oldNotes;
+            this.newNotes = newNotes;
+        }
+
+        private void add(Change change, int oldNote, int newNote) {
+            if (size == changes.length) {
+                changes = Arrays.copyOf(changes, size * 2);
+                oldIndexes = Arrays.copyOf(oldIndexes, size * 2);
+                newIndexes = Arrays.copyOf(newIndexes, size * 2);
+            }
+            changes[size] = (byte) change.ordinal();
+            oldIndexes[size] = oldNote;
+            newIndexes[size] = newNote;
+            size++;
+            counts[change.ordinal()]++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public Change getChange(int i) {
+            return CHANGES[changes[i]];
+        }
+
+        public int count(Change change) {
+            return counts[change.ordinal()];
+        }
+
+        /**
+         * 单条变化的可读文本（只在输出时拼接），如：~ 移动 | Single | 拍 12.5 | 轨 2 → 4
+         */
+        public String format(int i) {
+            Change change = getChange(i);
+            int oldNote = oldIndexes[i];
+            int newNote = newIndexes[i];
+            Notes notes = oldNote >= 0 ? oldNotes : newNotes;
+            int note = oldNote >= 0 ? oldNote : newNote;
+            StringBuilder text = new StringBuilder(64)
+                    .append(change.label()).append(" | ").append(notes.typeName(note))
+                    .append(" | 拍 ").append(notes.beats[note]);
+            switch (change) {
+                case MOVED -> text.append(" | 轨 ").append(oldNotes.lanes[oldNote]).append(" → ").append(newNotes.lanes[newNote]);
+                case CHANGED -> text.append(" | ").append(oldNotes.bpms[oldNote]).append(" → ").append(newNotes.bpms[newNote]);
+                default -> {
+                    if (notes.types[note] == TYPE_BPM) {
+                        text.append(" | ").append(notes.bpms[note]);
+                    } else {
+                        text.append(" | 轨 ").append(notes.lanes[note]);
+                    }
+                }
+            }
+            return text.toString();
+        }
+
+        /**
+         * 汇总文本，如：新增：3 删除：1 移动：2 修改：0
+         */
+        public String summary() {
+            return "新增：" + count(Change.ADDED) + " 删除：" + count(Change.REMOVED)
+                    + " 移动：" + count(Change.MOVED) + " 修改：" + count(Change.CHANGED);
+        }
+    }
+
+    // ------------------------------ 辅助：展开后的音符（列式数组 + 排好序的键，下标为展开顺序） ------------------------------
+    private static final class Notes {
+        final DevChart chart;
+        long[] keys;
+        double[] beats;
+        int[] lanes;
+        byte[] types;
+        double[] bpms;
+        // 对应的开发态音符下标（其他类型取type名用）
+        int[] sources;
+        int size;
+
+        private Notes(DevChart chart, int capacity) {
+            this.chart = chart;
+            beats = new double[capacity];
+            lanes = new int[capacity];
+            types = new byte[capacity];
+            bpms = new double[capacity];
+            sources = new int[capacity];
+        }
+
+        static Notes of(DevChart chart) {
+            int capacity = chart.getNoteCount();
+            for (int i = 0; i < chart.getNoteCount(); i++) {
+                if (chart.getKind(i) == DevChart.KIND_SLIDE) capacity += chart.getSlidePointCount(i);
+            }
+            if (capacity >= 1 << INDEX_BITS) {
+                throw new IllegalArgumentException("音符数超出对比上限：" + capacity);
+            }
+            Notes notes = new Notes(chart, capacity);
+            for (int i = 0; i < chart.getNoteCount(); i++) {
+                switch (chart.getKind(i)) {
+                    case DevChart.KIND_SINGLE -> notes.add(i, chart.isFlick(i) ? TYPE_FLICK : TYPE_SINGLE, chart.getBeat(i), chart.getLane(i), 0.0);
+                    case DevChart.KIND_BPM -> notes.add(i, TYPE_BPM, chart.getBeat(i), 0, chart.getBpm(i));
+                    case DevChart.KIND_SLIDE -> {
+                        for (int point = chart.getSlideFirstPoint(i); point >= 0; point = chart.getNextPoint(point)) {
+                            notes.add(i, TYPE_SLIDE, chart.getPointBeat(point), chart.getPointLane(point), 0.0);
+                        }
+                    }
+                    default -> {
+                        if (!META_DEV_TYPE.equals(chart.getOtherType(i))) {
+                            notes.add(i, TYPE_OTHER, chart.getBeat(i), chart.getLane(i), 0.0);
+                        }
+                    }
+                }
+            }
+            notes.keys = new long[notes.size];
+            for (int n = 0; n < notes.size; n++) {
+                notes.keys[n] = notes.key(n);
+            }
+            Arrays.sort(notes.keys);
+            return notes;
+        }
+
+        private void add(int source, byte type, double beat, int lane, double bpm) {
+            sources[size] = source;
+            types[size] = type;
+            beats[size] = beat;
+            lanes[size] = lane;
+            bpms[size] = bpm;
+            size++;
+        }
+
+        private long key(int n) {
+            long tick = Math.round(beats[n] * BEAT_RESOLUTION) + TICK_BIAS;
+            int lane = lanes[n] + LANE_BIAS;
+            if (tick < 0 || tick >= 1L << TICK_BITS) {
+                throw new IllegalArgumentException("拍数超出对比范围：" + beats[n]);
+            }
+            if (lane < 0 || lane >= 1 << LANE_BITS) {
+                throw new IllegalArgumentException("轨道超出对比范围：" + lanes[n]);
+            }
+            long key = tick << TICK_SHIFT | (long) lane << (INDEX_BITS + TYPE_BITS) | (long) types[n] << INDEX_BITS | n;
+            return key ^ Long.MIN_VALUE;
+        }
+
+        // 量化拍数（配对移动时只比较拍，不比较轨道）
+        long ticks(int n) {
+            return Math.round(beats[n] * BEAT_RESOLUTION);
+        }
+
+        String typeName(int n) {
+            return types[n] == TYPE_OTHER ? chart.getOtherType(sources[n]) : TYPE_NAMES[types[n]];
+        }
+    }
+
+    // ------------------------------ 辅助：可增长的int数组 ------------------------------
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
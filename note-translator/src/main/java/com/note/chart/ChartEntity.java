@@ -0,0 +1,173 @@
+package com.note.chart;
+
+/**
+ * 已编译谱面实体的紧凑表示（流式解码直接生成，不保留JsonNode树）
+ * data中的#BEAT、lane、#BPM以及关联引用在解码时一次性解析成字段，后续各阶段O(1)读取
+ * archetype解码为枚举，name和关联引用驻留为符号表编号（同一次解码的实体共用一个符号表）
+ */
+public class ChartEntity {
+    final SymbolTable symbols;
+    int index;
+    Archetype kind = Archetype.OTHER;
+    String archetype = ""; // 符号表中的同一个实例，不为每个实体单独分配
+    int name = SymbolTable.EMPTY;
+    String refs = "";
+    double beat;
+    int lane;
+    double bpm;
+    // data中的关联引用（符号编号，不存在时为SymbolTable.NONE）
+    int refA = SymbolTable.NONE;
+    int refB = SymbolTable.NONE;
+    int refFirst = SymbolTable.NONE;
+    int refPrev = SymbolTable.NONE;
+    int refNext = SymbolTable.NONE;
+    int refHead = SymbolTable.NONE;
+    int refTail = SymbolTable.NONE;
+
+    ChartEntity(SymbolTable symbols, int index) {
+        this.symbols = symbols;
+        this.index = index;
+    }
+
+    /**
+     * 本实体所属谱面的符号表（name和关联引用编号的取值范围为0 ~ size-1）
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * 实体在entities数组中的下标（从0开始）
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getArchetype() {
+        return archetype;
+    }
+
+    /**
+     * archetype枚举（分派用，不再比较字符串）
+     */
+    public Archetype getKind() {
+        return kind;
+    }
+
+    /**
+     * 实体名称（无name时为空字符串）
+     */
+    public String getName() {
+        return symbols.name(name);
+    }
+
+    /**
+     * 实体名称的符号编号（无name时为SymbolTable.EMPTY）
+     */
+    public int getNameId() {
+        return name;
+    }
+
+    public boolean hasName() {
+        return name != SymbolTable.EMPTY;
+    }
+
+    /**
+     * 实体顶层的refs文本（兼容旧日志格式，通常为空）
+     */
+    public String getRefs() {
+        return refs;
+    }
+
+    public double getBeat() {
+        return beat;
+    }
+
+    public int getLane() {
+        return lane;
+    }
+
+    /**
+     * #BPM_CHANGE的BPM值（其他实体为0）
+     */
+    public double getBpm() {
+        return bpm;
+    }
+
+    /**
+     * 双押左侧音符引用（SimLine的a）
+     */
+    public String getRefA() {
+        return symbols.name(refA);
+    }
+
+    public int getRefAId() {
+        return refA;
+    }
+
+    /**
+     * 双押右侧音符引用（SimLine的b）
+     */
+    public String getRefB() {
+        return symbols.name(refB);
+    }
+
+    public int getRefBId() {
+        return refB;
+    }
+
+    /**
+     * 滑键起始音符引用（first）
+     */
+    public String getRefFirst() {
+        return symbols.name(refFirst);
+    }
+
+    public int getRefFirstId() {
+        return refFirst;
+    }
+
+    /**
+     * 滑键上一个节点引用（prev）
+     */
+    public String getRefPrev() {
+        return symbols.name(refPrev);
+    }
+
+    public int getRefPrevId() {
+        return refPrev;
+    }
+
+    /**
+     * 滑键下一个节点引用（next）
+     */
+    public String getRefNext() {
+        return symbols.name(refNext);
+    }
+
+    public int getRefNextId() {
+        return refNext;
+    }
+
+    /**
+     * 连接器头部节点引用（head）
+     */
+    public String getRefHead() {
+        return symbols.name(refHead);
+    }
+
+    public int getRefHeadId() {
+        return refHead;
+    }
+
+    /**
+     * 连接器尾部节点引用（tail）
+     */
+    public String getRefTail() {
+        return symbols.name(refTail);
+    }
+
+    public int getRefTailId() {
+        return refTail;
+    }
+}
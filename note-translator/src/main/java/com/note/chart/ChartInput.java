@@ -0,0 +1,174 @@
+package com.note.chart;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 谱面文件的一次性读入结果（每个文件只读一次，哈希和解析共用同一份内容）
+ * 小文件经FileChannel读入池化的字节数组（批量转译时在文件之间复用，减少分配和系统调用）；
+ * 大文件直接内存映射（MappedByteBuffer），不在堆上复制整份内容
+ * 用完必须close()，把字节数组归还缓冲池
+ */
+public class ChartInput implements AutoCloseable {
+    // 超过此大小的文件改为内存映射
+    private static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+    // 新分配数组的最小容量（避免小文件之间来回扩容）/ 超过此容量的数组用完不入池，避免常驻大块内存
+    private static final int MIN_POOLED_SIZE = 256 * 1024;
+    private static final int MAX_POOLED_SIZE = 4 * 1024 * 1024;
+    // 缓冲池最多保留的数组数（约等于同时转译的文件数）
+    private static final int POOL_CAPACITY = Runtime.getRuntime().availableProcessors() * 2;
+    private static final BlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_CAPACITY);
+
+    private final byte[] array; // 池化数组（内存映射时为null）
+    private final ByteBuffer contents;
+    private boolean closed;
+
+    private ChartInput(byte[] array, ByteBuffer contents) {
+        this.array = array;
+        this.contents = contents;
+    }
+
+    /**
+     * 读入整个谱面文件
+     */
+    public static ChartInput read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD) {
+                return new ChartInput(null, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            }
+            byte[] array = acquire((int) size);
+            ByteBuffer buffer = ByteBuffer.wrap(array, 0, (int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // 读满size字节或到达文件末尾
+            }
+            buffer.flip();
+            return new ChartInput(array, buffer);
+        }
+    }
+
+    /**
+     * 读入输入流的全部内容（谱面包条目等无法映射的来源，同样使用池化数组；不关闭输入流）
+     *
+     * @param sizeHint 预计字节数（未知时传-1）
+     */
+    public static ChartInput read(InputStream in, long sizeHint) throws IOException {
+        byte[] array = acquire((int) Math.max(0, Math.min(sizeHint, MAP_THRESHOLD)));
+        int length = 0;
+        int read;
+        while ((read = in.read(array, length, array.length - length)) != -1) {
+            length += read;
+            if (length == array.length) {
+                // 容量不够时翻倍扩容，旧数组归还缓冲池
+                byte[] larger = new byte[array.length * 2];
+                System.arraycopy(array, 0, larger, 0, length);
+                release(array);
+                array = larger;
+            }
+        }
+        return new ChartInput(array, ByteBuffer.wrap(array, 0, length));
+    }
+
+    /**
+     * 文件内容（只读视图，每次调用返回独立的读取位置）
+     */
+    public ByteBuffer contents() {
+        return contents.asReadOnlyBuffer();
+    }
+
+    /**
+     * 文件字节数
+     */
+    public int length() {
+        return contents.limit();
+    }
+
+    /**
+     * 是否为gzip压缩内容（开头为魔数1F 8B）
+     */
+    public boolean isGzip() {
+        return length() >= 2 && (contents.get(0) & 0xFF) == 0x1F && (contents.get(1) & 0xFF) == 0x8B;
+    }
+
+    /**
+     * 池化数组（内存映射时为null），解析器可直接在数组上解析，省去一次复制
+     */
+    byte[] array() {
+        return array;
+    }
+
+    /**
+     * 以输入流方式读取内容
+     */
+    public InputStream openStream() {
+        if (array != null) {
+            return new ByteArrayInputStream(array, 0, length());
+        }
+        return new ByteBufferInputStream(contents());
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (array != null) {
+            release(array);
+        }
+    }
+
+    // ------------------------------ 辅助：从缓冲池取出足够大的数组（没有时新分配） ------------------------------
+    private static byte[] acquire(int size) {
+        byte[] array = BUFFER_POOL.poll();
+        if (array != null && array.length >= size) {
+            return array;
+        }
+        // 容量不够的旧数组丢弃，换成更大的数组后续继续入池
+        return new byte[Math.max(size, MIN_POOLED_SIZE)];
+    }
+
+    // ------------------------------ 辅助：数组归还缓冲池（过大的数组和池满时直接丢弃） ------------------------------
+    private static void release(byte[] array) {
+        if (array.length <= MAX_POOLED_SIZE) {
+            BUFFER_POOL.offer(array);
+        }
+    }
+
+    // ------------------------------ 辅助：ByteBuffer → InputStream（内存映射文件用） ------------------------------
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.note.chart;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 已编译谱面流式解码器（基于JsonParser逐token读取，不构建JsonNode树）
+ * 每个entity直接解码为ChartEntity，entities以外的字段全部跳过
+ * 字符串值直接在解析器的字符缓冲上驻留为符号编号，archetype和data字段名每种只识别一次
+ */
+public class ChartReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 逐个解码entities并交给consumer处理
+     *
+     * @return 解码的实体数量
+     */
+    public int read(InputStream in, Consumer<ChartEntity> consumer) throws IOException {
+        return read(JSON_FACTORY.createParser(in), consumer);
+    }
+
+    /**
+     * 解码已读入内存的谱面（未压缩时直接在池化数组上解析，不再经过输入流复制）
+     */
+    public int read(ChartInput input, Consumer<ChartEntity> consumer) throws IOException {
+        if (input.isGzip()) {
+            return read(new GZIPInputStream(input.openStream(), INPUT_BUFFER_SIZE), consumer);
+        }
+        if (input.array() != null) {
+            return read(JSON_FACTORY.createParser(input.array(), 0, input.length()), consumer);
+        }
+        return read(input.openStream(), consumer);
+    }
+
+    // ------------------------------ 解码主体：逐个读取entities（读完后关闭解析器） ------------------------------
+    private int read(JsonParser jsonParser, Consumer<ChartEntity> consumer) throws IOException {
+        try (JsonParser parser = jsonParser) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("格式错误：谱面根节点不是JSON对象");
+            }
+            int count = -1;
+            Symbols symbols = new Symbols();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("entities".equals(field) && token == JsonToken.START_ARRAY) {
+                    count = 0;
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(readEntity(parser, symbols, count++));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (count < 0) {
+                throw new IOException("格式错误：缺少\"entities\"数组");
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 解码整个谱面文件为紧凑实体列表（自动识别gzip压缩的Sonolus导出文件）
+     */
+    public List<ChartEntity> readAll(File file) throws IOException {
+        try (ChartInput input = ChartInput.read(file)) {
+            return readAll(input);
+        }
+    }
+
+    /**
+     * 解码已读入内存的谱面为紧凑实体列表
+     */
+    public List<ChartEntity> readAll(ChartInput input) throws IOException {
+        List<ChartEntity> entities = new ArrayList<>();
+        read(input, entities::add);
+        return entities;
+    }
+
+    /**
+     * 包装谱面输入流：开头为gzip魔数（1F 8B）时边读边解压，否则按原始JSON读取（不落地临时文件）
+     */
+    public static InputStream open(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, INPUT_BUFFER_SIZE);
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        if (b1 == 0x1F && b2 == 0x8B) {
+            return new GZIPInputStream(in, INPUT_BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    // ------------------------------ 解码单个entity（当前token为START_OBJECT） ------------------------------
+    private ChartEntity readEntity(JsonParser parser, Symbols symbols, int index) throws IOException {
+        ChartEntity entity = new ChartEntity(symbols.table, index);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "archetype" -> {
+                    int archetype = orEmpty(internValue(parser, symbols.table));
+                    entity.archetype = symbols.table.name(archetype);
+                    entity.kind = symbols.archetype(archetype);
+                }
+                case "name" -> entity.name = orEmpty(internValue(parser, symbols.table));
+                case "refs" -> entity.refs = parser.getValueAsString("");
+                case "data" -> {
+                    if (token == JsonToken.START_ARRAY) {
+                        readData(parser, symbols, entity);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return entity;
+    }
+
+    // ------------------------------ 解码data数组：按name直接写入实体字段 ------------------------------
+    private void readData(JsonParser parser, Symbols symbols, ChartEntity entity) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            int itemName = SymbolTable.NONE;
+            int itemRef = SymbolTable.NONE;
+            double itemValue = 0.0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String itemField = parser.getCurrentName();
+                parser.nextToken();
+                switch (itemField) {
+                    case "name" -> itemName = internValue(parser, symbols.table);
+                    case "ref" -> itemRef = internValue(parser, symbols.table);
+                    case "value" -> itemValue = parser.getValueAsDouble();
+                    default -> parser.skipChildren();
+                }
+            }
+            if (itemName == SymbolTable.NONE) {
+                continue;
+            }
+            switch (symbols.dataField(itemName)) {
+                case BEAT -> entity.beat = itemValue;
+                case LANE -> entity.lane = (int) itemValue; // lane是整数，转一下
+                case BPM -> entity.bpm = itemValue;
+                case A -> entity.refA = itemRef;
+                case B -> entity.refB = itemRef;
+                case FIRST -> entity.refFirst = itemRef;
+                case PREV -> entity.refPrev = itemRef;
+                case NEXT -> entity.refNext = itemRef;
+                case HEAD -> entity.refHead = itemRef;
+                case TAIL -> entity.refTail = itemRef;
+                default -> {
+                    // 其他data字段转译不需要，直接丢弃
+                }
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：当前值驻留为符号编号（字符串直接取解析器缓冲，不创建String；null/对象/数组为NONE） ------------------------------
+    private static int internValue(JsonParser parser, SymbolTable table) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_STRING) {
+            return table.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        String value = parser.getValueAsString();
+        return value == null ? SymbolTable.NONE : table.intern(value);
+    }
+
+    private static int orEmpty(int id) {
+        return id == SymbolTable.NONE ? SymbolTable.EMPTY : id;
+    }
+
+    // ------------------------------ 辅助：转译用到的data字段 ------------------------------
+    private enum DataField {
+        BEAT, LANE, BPM, A, B, FIRST, PREV, NEXT, HEAD, TAIL, OTHER;
+
+        static DataField of(String name) {
+            return switch (name) {
+                case "#BEAT" -> BEAT;
+                case "lane" -> LANE;
+                case "#BPM" -> BPM;
+                case "a" -> A;
+                case "b" -> B;
+                case "first" -> FIRST;
+                case "prev" -> PREV;
+                case "next" -> NEXT;
+                case "head" -> HEAD;
+                case "tail" -> TAIL;
+                default -> OTHER;
+            };
+        }
+    }
+
+    // ------------------------------ 辅助：单次解码的符号表 + 按编号缓存的archetype / data字段识别结果 ------------------------------
+    private static final class Symbols {
+        final SymbolTable table = new SymbolTable();
+        private Archetype[] archetypes = new Archetype[64];
+        private DataField[] dataFields = new DataField[64];
+
+        Archetype archetype(int id) {
+            if (id >= archetypes.length) archetypes = Arrays.copyOf(archetypes, Math.max(id + 1, archetypes.length * 2));
+            Archetype archetype = archetypes[id];
+            if (archetype == null) {
+                archetype = archetypes[id] = Archetype.of(table.name(id));
+            }
+            return archetype;
+        }
+
+        DataField dataField(int id) {
+            if (id >= dataFields.length) dataFields = Arrays.copyOf(dataFields, Math.max(id + 1, dataFields.length * 2));
+            DataField field = dataFields[id];
+            if (field == null) {
+                field = dataFields[id] = DataField.of(table.name(id));
+            }
+            return field;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.note.chart;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.note.chart.Diagnostics.Code;
+
+/**
+ * 谱面校验（转译前对解码结果做一次线性扫描，问题收集到Diagnostics，不抛异常也不修改谱面）
+ * 已编译谱面：name唯一、关联引用存在（SimLine a/b、滑键first/prev、连接器head/tail）、滑键节点拍数不倒退、
+ * BPM有效、轨道范围、未知archetype、同拍同轨重叠的音符
+ * 开发态谱面：BPM有效、轨道范围、滑键节点数和拍数顺序、未知type、同拍同轨重叠的音符
+ * 重叠检测用NoteIndex（量化拍数 + 轨道的哈希索引），整个扫描仍为线性
+ * 引用可能指向后面的实体：目标已出现时当场检查，否则记下待查引用，扫描结束后统一核对
+ */
+public class ChartValidator {
+    // 已编译谱面的轨道范围（中心为0）
+    public static final int COMPILED_MIN_LANE = -3;
+    public static final int COMPILED_MAX_LANE = 3;
+    // 开发态谱面的轨道范围（已编译轨道 + 默认轨道微调）
+    public static final int DEV_MIN_LANE = 0;
+    public static final int DEV_MAX_LANE = 6;
+
+    private static final String META_DEV_TYPE = "Meta";
+
+    /**
+     * 校验已编译谱面实体（同一次解码的实体，共用一个符号表）
+     */
+    public Diagnostics validate(List<ChartEntity> entities) {
+        Diagnostics diagnostics = new Diagnostics();
+        int total = entities.size();
+        if (total == 0) {
+            return diagnostics;
+        }
+        SymbolTable symbols = entities.get(0).getSymbols();
+        // name符号编号 → 实体下标
+        int[] entityBySymbol = new int[symbols.size()];
+        Arrays.fill(entityBySymbol, -1);
+        PendingRefs pending = new PendingRefs();
+        NoteIndex positions = new NoteIndex(total);
+
+        int bpmCount = 0;
+        double firstBpmBeat = Double.POSITIVE_INFINITY;
+        int earliestNote = -1;
+        for (int i = 0; i < total; i++) {
+            ChartEntity entity = entities.get(i);
+            if (entity.hasName()) {
+                if (entityBySymbol[entity.getNameId()] >= 0) {
+                    diagnostics.add(Code.DUPLICATE_NAME, i, Double.NaN, entity.getName());
+                } else {
+                    entityBySymbol[entity.getNameId()] = i;
+                }
+            }
+
+            Archetype kind = entity.getKind();
+            switch (kind) {
+                case INITIALIZATION, STAGE -> {
+                    // 元数据不校验
+                }
+                case BPM_CHANGE -> {
+                    if (entity.getBpm() <= 0 || entity.getBeat() < 0) {
+                        diagnostics.add(Code.INVALID_BPM, i, entity.getBpm(), null);
+                    } else {
+                        bpmCount++;
+                        firstBpmBeat = Math.min(firstBpmBeat, entity.getBeat());
+                    }
+                }
+                case SIM_LINE -> {
+                    if (entity.getRefAId() == SymbolTable.NONE || entity.getRefBId() == SymbolTable.NONE) {
+                        diagnostics.add(Code.SIMLINE_MISSING_REF, i);
+                    } else {
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefAId(), false);
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefBId(), false);
+                    }
+                }
+                default -> {
+                    if (kind == Archetype.OTHER) {
+                        diagnostics.add(Code.UNKNOWN_ARCHETYPE, i, Double.NaN, entity.getArchetype());
+                    }
+                    if (kind.isConnector()) {
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefFirstId(), false);
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefHeadId(), false);
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefTailId(), false);
+                        continue;
+                    }
+                    if (kind.isSlide()) {
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefFirstId(), false);
+                        checkRef(entities, entityBySymbol, pending, diagnostics, i, entity.getRefPrevId(), true);
+                    }
+                    checkNote(diagnostics, i, entity.getBeat(), entity.getLane(), COMPILED_MIN_LANE, COMPILED_MAX_LANE);
+                    if (kind == Archetype.TAP_NOTE || kind == Archetype.FLICK_NOTE || kind.isSlide()) {
+                        checkStacked(diagnostics, positions, i, entity.getBeat(), entity.getLane());
+                    }
+                    if (earliestNote < 0 || entity.getBeat() < entities.get(earliestNote).getBeat()) earliestNote = i;
+                }
+            }
+        }
+
+        // 指向后面实体的引用：扫描结束后核对
+        for (int p = 0; p < pending.size; p++) {
+            int entity = pending.entities[p];
+            int target = entityBySymbol[pending.refs[p]];
+            if (target < 0) {
+                diagnostics.add(Code.DANGLING_REF, entity, Double.NaN, symbols.name(pending.refs[p]));
+            } else if (pending.ordered[p] && entities.get(entity).getBeat() < entities.get(target).getBeat()) {
+                diagnostics.add(Code.SLIDE_BEAT_DECREASING, entity, entities.get(entity).getBeat(), null);
+            }
+        }
+        checkTiming(diagnostics, bpmCount, firstBpmBeat, earliestNote,
+                earliestNote < 0 ? 0.0 : entities.get(earliestNote).getBeat());
+        return diagnostics;
+    }
+
+    /**
+     * 校验开发态谱面（实体下标即开发态数组中的下标）
+     */
+    public Diagnostics validate(DevChart chart) {
+        Diagnostics diagnostics = new Diagnostics();
+        NoteIndex positions = new NoteIndex(chart.getNoteCount());
+        int bpmCount = 0;
+        double firstBpmBeat = Double.POSITIVE_INFINITY;
+        int earliestNote = -1;
+        double earliestBeat = 0.0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            switch (chart.getKind(i)) {
+                case DevChart.KIND_BPM -> {
+                    if (chart.getBpm(i) <= 0 || chart.getBeat(i) < 0) {
+                        diagnostics.add(Code.INVALID_BPM, i, chart.getBpm(i), null);
+                    } else {
+                        bpmCount++;
+                        firstBpmBeat = Math.min(firstBpmBeat, chart.getBeat(i));
+                    }
+                }
+                case DevChart.KIND_SLIDE -> {
+                    if (chart.getSlidePointCount(i) < 2) {
+                        diagnostics.add(Code.SLIDE_TOO_SHORT, i, chart.getSlidePointCount(i), null);
+                    }
+                    double previousBeat = Double.NEGATIVE_INFINITY;
+                    for (int point = chart.getSlideFirstPoint(i); point >= 0; point = chart.getNextPoint(point)) {
+                        double beat = chart.getPointBeat(point);
+                        if (beat < previousBeat) {
+                            diagnostics.add(Code.SLIDE_BEAT_DECREASING, i, beat, null);
+                        }
+                        previousBeat = beat;
+                        checkNote(diagnostics, i, beat, chart.getPointLane(point), DEV_MIN_LANE, DEV_MAX_LANE);
+                        checkStacked(diagnostics, positions, i, beat, chart.getPointLane(point));
+                        if (earliestNote < 0 || beat < earliestBeat) {
+                            earliestNote = i;
+                            earliestBeat = beat;
+                        }
+                    }
+                }
+                default -> {
+                    if (chart.getKind(i) == DevChart.KIND_OTHER) {
+                        String type = chart.getOtherType(i);
+                        if (META_DEV_TYPE.equals(type)) continue;
+                        if (Archetype.of(Archetype.fromDevType(type)) == Archetype.OTHER) {
+                            diagnostics.add(Code.UNKNOWN_ARCHETYPE, i, Double.NaN, type);
+                        }
+                    }
+                    checkNote(diagnostics, i, chart.getBeat(i), chart.getLane(i), DEV_MIN_LANE, DEV_MAX_LANE);
+                    if (chart.getKind(i) == DevChart.KIND_SINGLE) {
+                        checkStacked(diagnostics, positions, i, chart.getBeat(i), chart.getLane(i));
+                    }
+                    if (earliestNote < 0 || chart.getBeat(i) < earliestBeat) {
+                        earliestNote = i;
+                        earliestBeat = chart.getBeat(i);
+                    }
+                }
+            }
+        }
+        checkTiming(diagnostics, bpmCount, firstBpmBeat, earliestNote, earliestBeat);
+        return diagnostics;
+    }
+
+    // ------------------------------ 辅助：单个音符的拍数和轨道 ------------------------------
+    private void checkNote(Diagnostics diagnostics, int entity, double beat, int lane, int minLane, int maxLane) {
+        if (beat < 0) {
+            diagnostics.add(Code.NEGATIVE_BEAT, entity, beat, null);
+        }
+        if (lane < minLane || lane > maxLane) {
+            diagnostics.add(Code.LANE_OUT_OF_RANGE, entity, lane, null);
+        }
+    }
+
+    // ------------------------------ 辅助：同拍同轨已有音符时记为重叠（数值为先出现的实体下标） ------------------------------
+    private void checkStacked(Diagnostics diagnostics, NoteIndex positions, int entity, double beat, int lane) {
+        int existing = positions.putIfAbsent(beat, lane, entity);
+        if (existing >= 0) {
+            diagnostics.add(Code.STACKED_NOTE, entity, existing, null);
+        }
+    }
+
+    // ------------------------------ 辅助：整个谱面的时间轴（有音符却没有BPM时无法换算时间；最早的音符早于第一个BPM时沿用第一个BPM） ------------------------------
+    private void checkTiming(Diagnostics diagnostics, int bpmCount, double firstBpmBeat, int earliestNote, double earliestBeat) {
+        if (earliestNote < 0) {
+            return;
+        }
+        if (bpmCount == 0) {
+            diagnostics.add(Code.MISSING_BPM, -1);
+        } else if (earliestBeat < firstBpmBeat) {
+            diagnostics.add(Code.NOTE_BEFORE_FIRST_BPM, earliestNote, earliestBeat, null);
+        }
+    }
+
+    // ------------------------------ 辅助：检查一条关联引用（缺省的引用不检查；ordered=true时要求本实体拍数不小于目标） ------------------------------
+    private void checkRef(List<ChartEntity> entities, int[] entityBySymbol, PendingRefs pending,
+                          Diagnostics diagnostics, int entity, int ref, boolean ordered) {
+        if (ref == SymbolTable.NONE) {
+            return;
+        }
+        int target = entityBySymbol[ref];
+        if (target < 0) {
+            pending.add(entity, ref, ordered);
+        } else if (ordered && entities.get(entity).getBeat() < entities.get(target).getBeat()) {
+            diagnostics.add(Code.SLIDE_BEAT_DECREASING, entity, entities.get(entity).getBeat(), null);
+        }
+    }
+
+    // ------------------------------ 辅助：待核对的引用（目标在后面才出现，基本类型数组存放） ------------------------------
+    private static final class PendingRefs {
+        int size;
+        int[] entities = new int[16];
+        int[] refs = new int[16];
+        boolean[] ordered = new boolean[16];
+
+        void add(int entity, int ref, boolean isOrdered) {
+            if (size == entities.length) {
+                entities = Arrays.copyOf(entities, size * 2);
+                refs = Arrays.copyOf(refs, size * 2);
+                ordered = Arrays.copyOf(ordered, size * 2);
+            }
+            entities[size] = entity;
+            refs[size] = ref;
+            ordered[size] = isOrdered;
+            size++;
+        }
+    }
+}
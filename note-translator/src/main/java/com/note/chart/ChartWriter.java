@@ -0,0 +1,298 @@
+package com.note.chart;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * 已编译谱面流式输出（DevChart → Sonolus entities，正向编译用）
+ * 用JsonGenerator逐个写出实体，不构建ObjectNode树；实体name按写出顺序递增分配（十六进制），
+ * 写出前先按同样的顺序预分配name，以便同拍配对生成的SimLine引用单键和滑键首尾节点
+ * 输出顺序：Initialization、Stage、#BPM_CHANGE、各音符（滑键节点后紧跟其连接器）、SimLine
+ */
+public class ChartWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    // 开发态中由转译器自身生成的元数据类型（Initialization/Stage固定写在开头，不重复输出）
+    private static final String META_DEV_TYPE = "Meta";
+
+    // 同拍配对排序键：刻度(32位) | 轨道(8位) | 端点序号(24位)，按键排序即先按拍、同拍再按轨道
+    private static final int INDEX_BITS = 24;
+    private static final int LANE_BITS = 8;
+    private static final int TICK_BITS = 32;
+    private static final long TICK_BIAS = 1L << (TICK_BITS - 1);
+    private static final int LANE_BIAS = 1 << (LANE_BITS - 1);
+    private static final int TICK_SHIFT = INDEX_BITS + LANE_BITS;
+
+    /**
+     * 写出已编译谱面文件（经FileChannel + 缓冲输出）
+     *
+     * @param pretty true=带缩进换行，false=紧凑格式
+     * @return 写出的字节数
+     */
+    public long write(DevChart chart, File outputFile, boolean pretty) throws IOException {
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+            write(chart, out, pretty);
+            out.flush();
+            return channel.position();
+        }
+    }
+
+    /**
+     * 写出已编译谱面到输出流（不关闭输出流）
+     *
+     * @return 写出的实体数
+     * @throws IllegalArgumentException 谱面中有不足两个节点的滑键（构不成滑键，不静默丢弃）
+     */
+    public int write(DevChart chart, OutputStream out, boolean pretty) throws IOException {
+        requireCompilable(chart);
+        // 先按写出顺序预分配name，再按拍配对生成SimLine（引用的是name）
+        int[] names = assignNames(chart);
+        int[] simPairs = pairSimultaneousNotes(chart, names);
+
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (pretty) {
+                gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            }
+            gen.writeStartObject();
+            gen.writeNumberField("bgmOffset", 0);
+            gen.writeArrayFieldStart("entities");
+
+            int entities = 0;
+            writeEntity(gen, Archetype.INITIALIZATION.archetypeName(), null);
+            endEntity(gen);
+            writeEntity(gen, Archetype.STAGE.archetypeName(), null);
+            endEntity(gen);
+            entities += 2;
+
+            for (int i = 0; i < chart.getNoteCount(); i++) {
+                if (chart.getKind(i) != DevChart.KIND_BPM) continue;
+                writeEntity(gen, Archetype.BPM_CHANGE.archetypeName(), null);
+                writeValue(gen, "#BEAT", chart.getBeat(i));
+                writeValue(gen, "#BPM", chart.getBpm(i));
+                endEntity(gen);
+                entities++;
+            }
+
+            for (int i = 0; i < chart.getNoteCount(); i++) {
+                switch (chart.getKind(i)) {
+                    case DevChart.KIND_SINGLE -> {
+                        String archetype = chart.isFlick(i) ? Archetype.FLICK_NOTE.archetypeName() : Archetype.TAP_NOTE.archetypeName();
+                        writeNote(gen, archetype, names[i], chart.getBeat(i), chart.getLane(i));
+                        endEntity(gen);
+                        entities++;
+                    }
+                    case DevChart.KIND_SLIDE -> {
+                        int written = writeSlide(gen, chart, i, names[i]);
+                        // 节点数 + 连接器数（节点数-1）
+                        entities += written * 2 - 1;
+                    }
+                    case DevChart.KIND_OTHER -> {
+                        if (META_DEV_TYPE.equals(chart.getOtherType(i))) continue;
+                        writeNote(gen, Archetype.fromDevType(chart.getOtherType(i)), names[i], chart.getBeat(i), chart.getLane(i));
+                        String refs = chart.getOtherRefs(i);
+                        if (!refs.isEmpty()) {
+                            for (String pair : refs.split(",")) {
+                                String[] kv = pair.split("=");
+                                if (kv.length == 2) writeRef(gen, kv[0], kv[1]);
+                            }
+                        }
+                        endEntity(gen);
+                        entities++;
+                    }
+                    default -> {
+                        // BPM已在前面写出
+                    }
+                }
+            }
+
+            for (int p = 0; p < simPairs.length; p += 2) {
+                writeEntity(gen, Archetype.SIM_LINE.archetypeName(), null);
+                writeRef(gen, "a", name(simPairs[p]));
+                writeRef(gen, "b", name(simPairs[p + 1]));
+                endEntity(gen);
+                entities++;
+            }
+
+            gen.writeEndArray();
+            gen.writeEndObject();
+            return entities;
+        }
+    }
+
+    /**
+     * 检查谱面能否编译：每条滑键至少两个节点（否则构不成滑键，也无法连接其SimLine）
+     * 在发送任何输出之前调用，使调用方能把错误整体报告给用户而不是留下半截文件
+     *
+     * @throws IllegalArgumentException 存在不足两个节点的滑键
+     */
+    public void requireCompilable(DevChart chart) {
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_SLIDE && chart.getSlidePointCount(i) < 2) {
+                throw new IllegalArgumentException("第" + (i + 1) + "个音符是不足两个节点的滑键（"
+                        + chart.getSlidePointCount(i) + "个），无法编译");
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：按写出顺序预分配name（单键/其他音符各一个，滑键每个节点一个；0=不写出） ------------------------------
+    private int[] assignNames(DevChart chart) {
+        int[] names = new int[chart.getNoteCount()];
+        int lastName = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            switch (chart.getKind(i)) {
+                case DevChart.KIND_SINGLE -> names[i] = ++lastName;
+                case DevChart.KIND_SLIDE -> {
+                    names[i] = lastName + 1;
+                    lastName += chart.getSlidePointCount(i);
+                }
+                case DevChart.KIND_OTHER -> {
+                    if (!META_DEV_TYPE.equals(chart.getOtherType(i))) names[i] = ++lastName;
+                }
+                default -> {
+                    // BPM不占用name
+                }
+            }
+        }
+        return names;
+    }
+
+    // ------------------------------ 辅助：写出一条滑键（起点/中继/终点 + 相邻节点之间的连接器），返回节点数 ------------------------------
+    private int writeSlide(JsonGenerator gen, DevChart chart, int slide, int first) throws IOException {
+        int pointCount = chart.getSlidePointCount(slide);
+        int written = 0;
+        for (int point = chart.getSlideFirstPoint(slide); point >= 0; point = chart.getNextPoint(point)) {
+            int name = first + written++;
+            Archetype archetype = written == 1 ? Archetype.SLIDE_START_NOTE
+                    : written == pointCount ? Archetype.SLIDE_END_NOTE
+                    : Archetype.SLIDE_TICK_NOTE;
+            writeNote(gen, archetype.archetypeName(), name, chart.getPointBeat(point), chart.getPointLane(point));
+            writeRef(gen, "first", name(first));
+            if (written > 1) writeRef(gen, "prev", name(name - 1));
+            endEntity(gen);
+        }
+        for (int name = first; name < first + pointCount - 1; name++) {
+            writeEntity(gen, Archetype.STRAIGHT_SLIDE_CONNECTOR.archetypeName(), null);
+            writeRef(gen, "first", name(first));
+            writeRef(gen, "head", name(name));
+            writeRef(gen, "tail", name(name + 1));
+            endEntity(gen);
+        }
+        return written;
+    }
+
+    // ------------------------------ 辅助：同拍配对，返回SimLine两端的name [a0, b0, a1, b1, ...] ------------------------------
+    // 参与配对的端点：单键，以及滑键的起点和终点（中继节点不连线）；同一拍内按轨道排序后相邻的两个连一条SimLine
+    private int[] pairSimultaneousNotes(DevChart chart, int[] names) {
+        int endpoints = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_SINGLE) endpoints++;
+            else if (chart.getKind(i) == DevChart.KIND_SLIDE) endpoints += 2;
+        }
+        if (endpoints >= 1 << INDEX_BITS) {
+            throw new IllegalArgumentException("音符过多，无法生成双押连线：" + endpoints);
+        }
+        long[] keys = new long[endpoints];
+        int[] endpointNames = new int[endpoints];
+        int size = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == DevChart.KIND_SINGLE) {
+                endpointNames[size] = names[i];
+                keys[size] = endpointKey(chart.getBeat(i), chart.getLane(i), size);
+                size++;
+            } else if (chart.getKind(i) == DevChart.KIND_SLIDE) {
+                int point = chart.getSlideFirstPoint(i);
+                endpointNames[size] = names[i];
+                keys[size] = endpointKey(chart.getPointBeat(point), chart.getPointLane(point), size);
+                size++;
+                int last = point;
+                for (int next = chart.getNextPoint(point); next >= 0; next = chart.getNextPoint(next)) last = next;
+                endpointNames[size] = names[i] + chart.getSlidePointCount(i) - 1;
+                keys[size] = endpointKey(chart.getPointBeat(last), chart.getPointLane(last), size);
+                size++;
+            }
+        }
+        Arrays.sort(keys);
+
+        int[] pairs = new int[16];
+        int count = 0;
+        for (int k = 1; k < keys.length; k++) {
+            if (keys[k] >> TICK_SHIFT != keys[k - 1] >> TICK_SHIFT) continue;
+            if (count + 2 > pairs.length) pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            pairs[count++] = endpointNames[endpointIndex(keys[k - 1])];
+            pairs[count++] = endpointNames[endpointIndex(keys[k])];
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    private static long endpointKey(double beat, int lane, int index) {
+        long tick = Math.round(beat * NoteIndex.BEAT_RESOLUTION) + TICK_BIAS;
+        int biasedLane = lane + LANE_BIAS;
+        if (tick < 0 || tick >= 1L << TICK_BITS) {
+            throw new IllegalArgumentException("拍数超出编译范围：" + beat);
+        }
+        if (biasedLane < 0 || biasedLane >= 1 << LANE_BITS) {
+            throw new IllegalArgumentException("轨道超出编译范围：" + lane);
+        }
+        // 翻转符号位，使有符号long的排序与无符号键一致
+        return (tick << TICK_SHIFT | (long) biasedLane << INDEX_BITS | index) ^ Long.MIN_VALUE;
+    }
+
+    private static int endpointIndex(long key) {
+        return (int) (key & ((1L << INDEX_BITS) - 1));
+    }
+
+    // ------------------------------ 辅助：实体开头（写到data数组开始，调用方写完data后调用endEntity） ------------------------------
+    private void writeEntity(JsonGenerator gen, String archetype, String name) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("archetype", archetype);
+        if (name != null) gen.writeStringField("name", name);
+        gen.writeArrayFieldStart("data");
+    }
+
+    private void endEntity(JsonGenerator gen) throws IOException {
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private void writeNote(JsonGenerator gen, String archetype, int name, double beat, int lane) throws IOException {
+        writeEntity(gen, archetype, name(name));
+        writeValue(gen, "#BEAT", beat);
+        gen.writeStartObject();
+        gen.writeStringField("name", "lane");
+        gen.writeNumberField("value", lane);
+        gen.writeEndObject();
+    }
+
+    private void writeValue(JsonGenerator gen, String name, double value) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", name);
+        gen.writeNumberField("value", value);
+        gen.writeEndObject();
+    }
+
+    private void writeRef(JsonGenerator gen, String name, String ref) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("name", name);
+        gen.writeStringField("ref", ref);
+        gen.writeEndObject();
+    }
+
+    // 实体name：从1开始的十六进制序号（与常见Sonolus谱面一致）
+    private static String name(int id) {
+        return Integer.toHexString(id);
+    }
+}
@@ -0,0 +1,246 @@
+package com.note.chart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 开发态谱面中间表示（列式存储：每个字段一个基本类型数组，不为每个音符分配对象）
+ * 音符表按输出顺序存放Single/BPM/Slide/其他类型；滑键节点单独存放在节点表，通过int链接串成链
+ */
+public class DevChart {
+    // 音符类型
+    public static final byte KIND_SINGLE = 0;
+    public static final byte KIND_BPM = 1;
+    public static final byte KIND_SLIDE = 2;
+    public static final byte KIND_OTHER = 3;
+    // 音符标记位
+    public static final byte FLAG_FLICK = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // ===================== 音符表 =====================
+    private int noteCount;
+    private double[] beats = new double[INITIAL_CAPACITY];
+    private int[] lanes = new int[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+    // BPM的数值（其他类型为0）
+    private double[] bpms = new double[INITIAL_CAPACITY];
+    // Slide：首个节点在节点表中的下标；其他类型：在extras中的下标；其余为-1
+    private int[] links = new int[INITIAL_CAPACITY];
+
+    // ===================== 滑键节点表 =====================
+    private int pointCount;
+    private double[] pointBeats = new double[INITIAL_CAPACITY];
+    private int[] pointLanes = new int[INITIAL_CAPACITY];
+    // 下一个节点的下标（-1表示链尾）
+    private int[] pointNext = new int[INITIAL_CAPACITY];
+    // 最近一次追加节点的滑键和节点下标
+    private int lastSlide = -1;
+    private int lastPoint = -1;
+
+    // 其他类型音符的文本属性（{开发态type, name, refs}，数量很少，单独存放）
+    private final List<String[]> extras = new ArrayList<>();
+
+    /**
+     * 添加单键
+     */
+    public int addSingle(double beat, int lane, boolean flick) {
+        return addNote(KIND_SINGLE, beat, lane, flick ? FLAG_FLICK : 0, 0.0, -1);
+    }
+
+    /**
+     * 添加BPM变更
+     */
+    public int addBpm(double beat, double bpm) {
+        return addNote(KIND_BPM, beat, 0, (byte) 0, bpm, -1);
+    }
+
+    /**
+     * 添加其他类型音符（type/name/refs原样输出）
+     */
+    public int addOther(String devType, double beat, int lane, String name, String refs) {
+        extras.add(new String[]{devType, name, refs});
+        return addNote(KIND_OTHER, beat, lane, (byte) 0, 0.0, extras.size() - 1);
+    }
+
+    /**
+     * 开始一条滑键（之后用addSlidePoint依次追加节点）
+     */
+    public int beginSlide() {
+        return addNote(KIND_SLIDE, 0.0, 0, (byte) 0, 0.0, -1);
+    }
+
+    /**
+     * 给滑键追加一个节点（节点按追加顺序串成链）
+     */
+    public void addSlidePoint(int slide, double beat, int lane) {
+        ensurePointCapacity(pointCount + 1);
+        int point = pointCount++;
+        pointBeats[point] = beat;
+        pointLanes[point] = lane;
+        pointNext[point] = -1;
+
+        if (links[slide] < 0) {
+            links[slide] = point;
+        } else {
+            // 通常连续追加同一条滑键，直接接在上次追加的节点后面
+            int tail = slide == lastSlide ? lastPoint : links[slide];
+            while (pointNext[tail] >= 0) tail = pointNext[tail];
+            pointNext[tail] = point;
+        }
+        lastSlide = slide;
+        lastPoint = point;
+    }
+
+    // ------------------------------ 偏移变换（原地修改，开发态微调） ------------------------------
+    /**
+     * 对全部音符和滑键节点应用时间/轨道微调（BPM只调整时间）
+     */
+    public void applyOffset(double beatOffset, int laneOffset) {
+        for (int i = 0; i < noteCount; i++) {
+            switch (kinds[i]) {
+                case KIND_SINGLE, KIND_OTHER -> {
+                    beats[i] += beatOffset;
+                    lanes[i] += laneOffset;
+                }
+                case KIND_BPM -> beats[i] += beatOffset;
+                default -> {
+                    // Slide本身无坐标，节点在下方统一调整
+                }
+            }
+        }
+        for (int i = 0; i < pointCount; i++) {
+            pointBeats[i] += beatOffset;
+            pointLanes[i] += laneOffset;
+        }
+    }
+
+    /**
+     * 按时间微调全部音符和滑键节点：每个音符在时间轴上移动固定秒数后换算回拍
+     * BPM变更保持原位（曲速变化属于乐曲本身），因此变速谱面中各音符移动的拍数不同
+     *
+     * @param timeline 由本谱面（微调前）构建的BPM时间轴
+     * @param seconds  正数=延后，负数=提前
+     */
+    public void applyTimeOffset(BpmTimeline timeline, double seconds) {
+        for (int i = 0; i < noteCount; i++) {
+            if (kinds[i] == KIND_SINGLE || kinds[i] == KIND_OTHER) {
+                beats[i] = timeline.beatAt(timeline.timeAt(beats[i]) + seconds);
+            }
+        }
+        for (int i = 0; i < pointCount; i++) {
+            pointBeats[i] = timeline.beatAt(timeline.timeAt(pointBeats[i]) + seconds);
+        }
+    }
+
+    // ------------------------------ 读取接口 ------------------------------
+    public int getNoteCount() {
+        return noteCount;
+    }
+
+    public byte getKind(int note) {
+        return kinds[note];
+    }
+
+    public boolean isFlick(int note) {
+        return (flags[note] & FLAG_FLICK) != 0;
+    }
+
+    public double getBeat(int note) {
+        return beats[note];
+    }
+
+    public int getLane(int note) {
+        return lanes[note];
+    }
+
+    public double getBpm(int note) {
+        return bpms[note];
+    }
+
+    /**
+     * 其他类型音符的开发态type
+     */
+    public String getOtherType(int note) {
+        return extras.get(links[note])[0];
+    }
+
+    /**
+     * 其他类型音符的名称（可能为空字符串）
+     */
+    public String getOtherName(int note) {
+        return extras.get(links[note])[1];
+    }
+
+    /**
+     * 其他类型音符的关联信息（"k=v,k=v"格式，可能为空字符串）
+     */
+    public String getOtherRefs(int note) {
+        return extras.get(links[note])[2];
+    }
+
+    /**
+     * 滑键首个节点下标（无节点返回-1）
+     */
+    public int getSlideFirstPoint(int slide) {
+        return links[slide];
+    }
+
+    /**
+     * 下一个滑键节点下标（链尾返回-1）
+     */
+    public int getNextPoint(int point) {
+        return pointNext[point];
+    }
+
+    public double getPointBeat(int point) {
+        return pointBeats[point];
+    }
+
+    public int getPointLane(int point) {
+        return pointLanes[point];
+    }
+
+    /**
+     * 滑键节点数量
+     */
+    public int getSlidePointCount(int slide) {
+        int count = 0;
+        for (int point = links[slide]; point >= 0; point = pointNext[point]) count++;
+        return count;
+    }
+
+    // ------------------------------ 辅助：追加音符表一行 ------------------------------
+    private int addNote(byte kind, double beat, int lane, byte flag, double bpm, int link) {
+        ensureNoteCapacity(noteCount + 1);
+        int note = noteCount++;
+        kinds[note] = kind;
+        beats[note] = beat;
+        lanes[note] = lane;
+        flags[note] = flag;
+        bpms[note] = bpm;
+        links[note] = link;
+        return note;
+    }
+
+    private void ensureNoteCapacity(int capacity) {
+        if (capacity <= kinds.length) return;
+        int newCapacity = Math.max(capacity, kinds.length * 2);
+        beats = Arrays.copyOf(beats, newCapacity);
+        lanes = Arrays.copyOf(lanes, newCapacity);
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        bpms = Arrays.copyOf(bpms, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+    }
+
+    private void ensurePointCapacity(int capacity) {
+        if (capacity <= pointBeats.length) return;
+        int newCapacity = Math.max(capacity, pointBeats.length * 2);
+        pointBeats = Arrays.copyOf(pointBeats, newCapacity);
+        pointLanes = Arrays.copyOf(pointLanes, newCapacity);
+        pointNext = Arrays.copyOf(pointNext, newCapacity);
+    }
+}
@@ -0,0 +1,160 @@
+package com.note.chart;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 开发态谱面流式解码器（bestdori开发态JSON数组 → DevChart，正向编译用）
+ * 逐条读取Single/BPM/Slide及其他类型，直接写入列式中间表示，不构建JsonNode树
+ * 其他类型的name和xxxRef字段原样保留（与DevChartWriter的输出格式对应）
+ */
+public class DevChartReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    private static final String REF_SUFFIX = "Ref";
+
+    /**
+     * 解码开发态谱面（读完后关闭输入流）
+     */
+    public DevChart read(InputStream in) throws IOException {
+        return read(JSON_FACTORY.createParser(ChartReader.open(in)));
+    }
+
+    /**
+     * 解码已读入内存的开发态谱面（未压缩时直接在池化数组上解析）
+     */
+    public DevChart read(ChartInput input) throws IOException {
+        if (input.isGzip()) {
+            return read(JSON_FACTORY.createParser(new GZIPInputStream(input.openStream(), INPUT_BUFFER_SIZE)));
+        }
+        if (input.array() != null) {
+            return read(JSON_FACTORY.createParser(input.array(), 0, input.length()));
+        }
+        return read(JSON_FACTORY.createParser(input.openStream()));
+    }
+
+    // ------------------------------ 解码主体：根节点为开发态记录数组（读完后关闭解析器） ------------------------------
+    private DevChart read(JsonParser jsonParser) throws IOException {
+        try (JsonParser parser = jsonParser) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("格式错误：开发态谱面根节点不是JSON数组");
+            }
+            DevChart chart = new DevChart();
+            Note note = new Note();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                note.reset();
+                readNote(parser, note);
+                note.addTo(chart);
+            }
+            return chart;
+        }
+    }
+
+    // ------------------------------ 解码单条开发态记录（当前token为START_OBJECT） ------------------------------
+    private void readNote(JsonParser parser, Note note) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "type" -> note.type = parser.getValueAsString("");
+                case "beat" -> note.beat = parser.getValueAsDouble();
+                case "lane" -> note.lane = (int) parser.getValueAsDouble(); // lane是整数，转一下
+                case "bpm" -> note.bpm = parser.getValueAsDouble();
+                case "flick" -> note.flick = parser.getValueAsBoolean();
+                case "name" -> note.name = parser.getValueAsString("");
+                case "connections" -> {
+                    if (token == JsonToken.START_ARRAY) {
+                        readConnections(parser, note);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> {
+                    if (field.endsWith(REF_SUFFIX) && field.length() > REF_SUFFIX.length() && token.isScalarValue()) {
+                        note.addRef(field.substring(0, field.length() - REF_SUFFIX.length()), parser.getValueAsString(""));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+    }
+
+    // ------------------------------ 解码滑键节点数组：只取beat/lane，其余字段跳过 ------------------------------
+    private void readConnections(JsonParser parser, Note note) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            double beat = 0.0;
+            int lane = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "beat" -> beat = parser.getValueAsDouble();
+                    case "lane" -> lane = (int) parser.getValueAsDouble();
+                    default -> parser.skipChildren();
+                }
+            }
+            note.addPoint(beat, lane);
+        }
+    }
+
+    // ------------------------------ 辅助：正在解码的一条记录（字段顺序不固定，读完整条再写入DevChart；整次解码复用同一个对象） ------------------------------
+    private static final class Note {
+        String type;
+        double beat;
+        int lane;
+        double bpm;
+        boolean flick;
+        String name;
+        StringBuilder refs = new StringBuilder();
+        int pointCount;
+        double[] pointBeats = new double[16];
+        int[] pointLanes = new int[16];
+
+        void reset() {
+            type = "";
+            beat = 0.0;
+            lane = 0;
+            bpm = 0.0;
+            flick = false;
+            name = "";
+            refs.setLength(0);
+            pointCount = 0;
+        }
+
+        void addRef(String key, String value) {
+            if (refs.length() > 0) refs.append(',');
+            refs.append(key).append('=').append(value);
+        }
+
+        void addPoint(double beat, int lane) {
+            if (pointCount == pointBeats.length) {
+                pointBeats = Arrays.copyOf(pointBeats, pointCount * 2);
+                pointLanes = Arrays.copyOf(pointLanes, pointCount * 2);
+            }
+            pointBeats[pointCount] = beat;
+            pointLanes[pointCount] = lane;
+            pointCount++;
+        }
+
+        void addTo(DevChart chart) {
+            switch (type) {
+                case "Single" -> chart.addSingle(beat, lane, flick);
+                case "BPM" -> chart.addBpm(beat, bpm);
+                case "Slide" -> {
+                    int slide = chart.beginSlide();
+                    for (int i = 0; i < pointCount; i++) {
+                        chart.addSlidePoint(slide, pointBeats[i], pointLanes[i]);
+                    }
+                }
+                default -> chart.addOther(type, beat, lane, name, refs.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.note.chart;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+/**
+ * 开发态谱面流式输出（DevChart → bestdori开发态JSON数组）
+ * 直接用JsonGenerator逐条写出Single/BPM/Slide，不构建ObjectNode树；可选紧凑格式（无缩进换行）
+ */
+public class DevChartWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 写出带缩进的开发态JSON
+     */
+    public long write(DevChart chart, File outputFile) throws IOException {
+        return write(chart, outputFile, true);
+    }
+
+    /**
+     * 写出开发态JSON文件（经FileChannel + 缓冲输出）
+     *
+     * @param pretty true=带缩进换行（便于阅读），false=紧凑格式（直接粘贴到bestdori，体积更小）
+     * @return 写出的字节数
+     */
+    public long write(DevChart chart, File outputFile, boolean pretty) throws IOException {
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), OUTPUT_BUFFER_SIZE);
+            write(chart, out, pretty);
+            out.flush();
+            return channel.position();
+        }
+    }
+
+    /**
+     * 写出开发态JSON到输出流（不关闭输出流）
+     */
+    public void write(DevChart chart, OutputStream out, boolean pretty) throws IOException {
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (pretty) {
+                gen.setPrettyPrinter(new DefaultPrettyPrinter());
+            }
+            gen.writeStartArray();
+            for (int i = 0; i < chart.getNoteCount(); i++) {
+                writeNote(chart, i, gen);
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    // ------------------------------ 辅助：写出单条开发态记录（字段顺序与原ObjectNode输出一致） ------------------------------
+    private void writeNote(DevChart chart, int i, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        switch (chart.getKind(i)) {
+            case DevChart.KIND_SINGLE -> {
+                gen.writeStringField("type", "Single");
+                if (chart.isFlick(i)) gen.writeBooleanField("flick", true);
+                gen.writeNumberField("beat", chart.getBeat(i));
+                gen.writeNumberField("lane", chart.getLane(i));
+            }
+            case DevChart.KIND_BPM -> {
+                gen.writeStringField("type", "BPM");
+                gen.writeNumberField("bpm", chart.getBpm(i));
+                gen.writeNumberField("beat", chart.getBeat(i));
+            }
+            case DevChart.KIND_SLIDE -> {
+                gen.writeStringField("type", "Slide");
+                gen.writeArrayFieldStart("connections");
+                for (int point = chart.getSlideFirstPoint(i); point >= 0; point = chart.getNextPoint(point)) {
+                    gen.writeStartObject();
+                    gen.writeNumberField("beat", chart.getPointBeat(point));
+                    gen.writeNumberField("lane", chart.getPointLane(point));
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
+            default -> {
+                gen.writeStringField("type", chart.getOtherType(i));
+                gen.writeNumberField("beat", chart.getBeat(i));
+                gen.writeNumberField("lane", chart.getLane(i));
+                String name = chart.getOtherName(i);
+                if (!name.isEmpty()) gen.writeStringField("name", name);
+                String refs = chart.getOtherRefs(i);
+                if (!refs.isEmpty()) {
+                    for (String pair : refs.split(",")) {
+                        String[] kv = pair.split("=");
+                        if (kv.length == 2) gen.writeStringField(kv[0] + "Ref", kv[1]);
+                    }
+                }
+            }
+        }
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,168 @@
+package com.note.chart;
+
+import java.util.Arrays;
+
+/**
+ * 谱面校验结果（紧凑的结构化诊断列表）
+ * 每条诊断只记录诊断码、实体下标、数值和可选的附加文本，按列存放在基本类型数组中，
+ * 不为每条诊断分配对象；附加文本只引用谱面中已有的字符串（如符号表中的name），不额外拼接
+ */
+public class Diagnostics {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * 严重程度
+     */
+    public enum Severity {
+        // 输出会缺失或错误（仅校验模式下视为失败）
+        ERROR("错误"),
+        // 可以照常输出，但结果可能不符合预期
+        WARNING("警告");
+
+        private final String label;
+
+        Severity(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 诊断码（枚举名即对外的诊断码，如DANGLING_REF）
+     */
+    public enum Code {
+        SIMLINE_MISSING_REF(Severity.ERROR, "SimLine缺少a/b关联"),
+        DANGLING_REF(Severity.ERROR, "关联的音符不存在"),
+        DUPLICATE_NAME(Severity.ERROR, "实体name重复"),
+        INVALID_BPM(Severity.ERROR, "BPM无效"),
+        MISSING_BPM(Severity.ERROR, "谱面没有BPM变更"),
+        SLIDE_BEAT_DECREASING(Severity.ERROR, "滑键节点拍数倒退"),
+        SLIDE_TOO_SHORT(Severity.ERROR, "滑键节点不足两个"),
+        UNKNOWN_ARCHETYPE(Severity.WARNING, "未知类型"),
+        LANE_OUT_OF_RANGE(Severity.WARNING, "轨道超出范围"),
+        NEGATIVE_BEAT(Severity.WARNING, "拍数为负"),
+        STACKED_NOTE(Severity.WARNING, "与同拍同轨的另一实体重叠"),
+        NOTE_BEFORE_FIRST_BPM(Severity.WARNING, "音符早于第一个BPM变更");
+
+        private final Severity severity;
+        private final String message;
+
+        Code(Severity severity, String message) {
+            this.severity = severity;
+            this.message = message;
+        }
+
+        public Severity severity() {
+            return severity;
+        }
+
+        public String message() {
+            return message;
+        }
+    }
+
+    private static final Code[] CODES = Code.values();
+
+    private int size;
+    private int errorCount;
+    private byte[] codes = new byte[INITIAL_CAPACITY];
+    private int[] entities = new int[INITIAL_CAPACITY];
+    private double[] values = new double[INITIAL_CAPACITY];
+    private String[] details = new String[INITIAL_CAPACITY];
+
+    /**
+     * 添加一条诊断
+     *
+     * @param entity 实体下标（整个谱面的问题为-1）
+     * @param value  相关数值（BPM、轨道、拍数等，没有时为NaN）
+     * @param detail 附加文本（name、archetype等，没有时为null）
+     */
+    public void add(Code code, int entity, double value, String detail) {
+        if (size == codes.length) {
+            int capacity = size * 2;
+            codes = Arrays.copyOf(codes, capacity);
+            entities = Arrays.copyOf(entities, capacity);
+            values = Arrays.copyOf(values, capacity);
+            details = Arrays.copyOf(details, capacity);
+        }
+        codes[size] = (byte) code.ordinal();
+        entities[size] = entity;
+        values[size] = value;
+        details[size] = detail;
+        size++;
+        if (code.severity() == Severity.ERROR) errorCount++;
+    }
+
+    public void add(Code code, int entity) {
+        add(code, entity, Double.NaN, null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public int getWarningCount() {
+        return size - errorCount;
+    }
+
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    public Code getCode(int i) {
+        return CODES[codes[i]];
+    }
+
+    public Severity getSeverity(int i) {
+        return getCode(i).severity();
+    }
+
+    public int getEntity(int i) {
+        return entities[i];
+    }
+
+    public double getValue(int i) {
+        return values[i];
+    }
+
+    public String getDetail(int i) {
+        return details[i];
+    }
+
+    /**
+     * 单条诊断的可读文本（只在输出时拼接），如：[错误] DANGLING_REF | 实体#12 | 关联的音符不存在：1a
+     */
+    public String format(int i) {
+        Code code = getCode(i);
+        StringBuilder text = new StringBuilder(64)
+                .append('[').append(code.severity().label()).append("] ").append(code.name())
+                .append(" | ").append(entities[i] < 0 ? "整个谱面" : "实体#" + entities[i])
+                .append(" | ").append(code.message());
+        if (details[i] != null) text.append('：').append(details[i].isEmpty() ? "（空）" : details[i]);
+        if (!Double.isNaN(values[i])) text.append(details[i] == null ? "：" : " = ").append(formatValue(values[i]));
+        return text.toString();
+    }
+
+    /**
+     * 汇总文本，如：错误：1 警告：3
+     */
+    public String summary() {
+        return "错误：" + errorCount + " 警告：" + getWarningCount();
+    }
+
+    // 整数值不带小数点（轨道等）
+    private static String formatValue(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+}
@@ -0,0 +1,98 @@
+package com.note.chart;
+
+import java.util.Arrays;
+
+/**
+ * 音符位置索引（拍 + 轨道 → 音符下标）
+ * 拍按BEAT_RESOLUTION量化为整数刻度，与轨道一起打包成一个long作为键，存放在开放寻址表中（基本类型数组，不装箱）
+ * 用于双押端点去重和同拍同轨重叠检测，插入和查找均摊O(1)
+ */
+public class NoteIndex {
+    /**
+     * 每拍的量化刻度数（相差不到半个刻度的拍数视为同一拍）
+     */
+    public static final int BEAT_RESOLUTION = 960;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    // 音符下标（-1表示空槽）
+    private int[] notes;
+    private int size;
+
+    /**
+     * @param expected 预计的音符数（按此预分配，超出时自动扩容）
+     */
+    public NoteIndex(int expected) {
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(expected, 1) * 2) * 2);
+        keys = new long[capacity];
+        notes = new int[capacity];
+        Arrays.fill(notes, -1);
+    }
+
+    /**
+     * 登记音符；该位置已有音符时不覆盖
+     *
+     * @return 该位置已有的音符下标，之前没有时返回-1（本次登记成功）
+     */
+    public int putIfAbsent(double beat, int lane, int note) {
+        long key = key(beat, lane);
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (notes[slot] >= 0) {
+            if (keys[slot] == key) return notes[slot];
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        notes[slot] = note;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return -1;
+    }
+
+    /**
+     * 该位置的音符下标（没有时返回-1）
+     */
+    public int get(double beat, int lane) {
+        long key = key(beat, lane);
+        int mask = keys.length - 1;
+        for (int slot = slot(key, mask); notes[slot] >= 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) return notes[slot];
+        }
+        return -1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // ------------------------------ 辅助：键 = 量化拍数（高位）+ 轨道（低32位） ------------------------------
+    private static long key(double beat, int lane) {
+        return Math.round(beat * BEAT_RESOLUTION) << 32 | (lane & 0xFFFFFFFFL);
+    }
+
+    // 混合高低位（量化拍数多为连续的小整数，直接取低位会在线性探测中连成长串）
+    private static int slot(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldNotes = notes;
+        keys = new long[capacity];
+        notes = new int[capacity];
+        Arrays.fill(notes, -1);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNotes[i] < 0) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (notes[slot] >= 0) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            notes[slot] = oldNotes[i];
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.note.chart;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 滑键链重建（一次遍历引用图，按head/tail/prev/next顺序还原每条滑键的节点序列）
+ * 连接器（*Connector）只作为边使用，不生成connections节点；
+ * 没有任何链式引用的节点才退回到按first分组 + 按beat排序
+ */
+public class SlideChainBuilder {
+
+    /**
+     * 重建滑键链
+     *
+     * @param slideRelated 所有滑键相关实体（Slide*音符 + 连接器），按entities原顺序
+     * @return 每条滑键的有序节点列表，按滑键首个节点在谱面中的顺序排列
+     */
+    public List<List<ChartEntity>> build(List<ChartEntity> slideRelated) {
+        List<List<ChartEntity>> chains = new ArrayList<>();
+        if (slideRelated.isEmpty()) {
+            return chains;
+        }
+        // 引用都是符号编号，按编号直接查数组（同一谱面的实体共用一个符号表）
+        int symbolCount = slideRelated.get(0).getSymbols().size();
+
+        // 1. 收集滑键音符节点（name编号 → 节点序号），序号按谱面顺序分配
+        int[] nodeBySymbol = new int[symbolCount];
+        Arrays.fill(nodeBySymbol, -1);
+        List<ChartEntity> nodes = new ArrayList<>();
+        for (ChartEntity entity : slideRelated) {
+            if (isConnector(entity)) continue;
+            if (entity.hasName()) {
+                nodeBySymbol[entity.getNameId()] = nodes.size();
+            }
+            nodes.add(entity);
+        }
+
+        // 2. 建立后继边：连接器head→tail、音符prev→自身、自身→next
+        int nodeCount = nodes.size();
+        int[] next = new int[nodeCount];
+        Arrays.fill(next, -1);
+        boolean[] hasPrev = new boolean[nodeCount];
+        int node = 0;
+        for (ChartEntity entity : slideRelated) {
+            if (isConnector(entity)) {
+                link(lookup(nodeBySymbol, entity.getRefHeadId()), lookup(nodeBySymbol, entity.getRefTailId()), next, hasPrev);
+            } else {
+                link(lookup(nodeBySymbol, entity.getRefPrevId()), node, next, hasPrev);
+                link(node, lookup(nodeBySymbol, entity.getRefNextId()), next, hasPrev);
+                node++;
+            }
+        }
+
+        // 3. 从无前驱且有后继的节点出发沿链遍历（每个节点只访问一次）
+        boolean[] visited = new boolean[nodeCount];
+        for (int head = 0; head < nodeCount; head++) {
+            if (hasPrev[head] || next[head] < 0) continue;
+            List<ChartEntity> chain = new ArrayList<>();
+            for (int current = head; current >= 0 && !visited[current]; current = next[current]) {
+                visited[current] = true;
+                chain.add(nodes.get(current));
+            }
+            chains.add(chain);
+        }
+
+        // 4. 未被链覆盖的节点（无链式引用或成环）：按first分组（没有first时按自身name），组内按beat排序
+        int[] groupBySymbol = new int[symbolCount];
+        Arrays.fill(groupBySymbol, -1);
+        List<List<ChartEntity>> fallbackGroups = new ArrayList<>();
+        for (int i = 0; i < nodeCount; i++) {
+            if (visited[i]) continue;
+            ChartEntity entity = nodes.get(i);
+            int firstRef = entity.getRefFirstId();
+            int groupKey = firstRef == SymbolTable.NONE || firstRef == SymbolTable.EMPTY ? entity.getNameId() : firstRef;
+            if (groupBySymbol[groupKey] < 0) {
+                groupBySymbol[groupKey] = fallbackGroups.size();
+                fallbackGroups.add(new ArrayList<>());
+            }
+            fallbackGroups.get(groupBySymbol[groupKey]).add(entity);
+        }
+        for (List<ChartEntity> group : fallbackGroups) {
+            if (group.size() > 1) {
+                group.sort(Comparator.comparingDouble(ChartEntity::getBeat));
+            }
+            chains.add(group);
+        }
+
+        // 按滑键首节点在谱面中的位置排序，输出顺序与文件内容一致
+        chains.sort(Comparator.comparingInt(chain -> chain.get(0).getIndex()));
+        return chains;
+    }
+
+    /**
+     * 是否为滑键连接器（只作为边，不是滑键节点）
+     */
+    public static boolean isConnector(ChartEntity entity) {
+        return entity.getKind().isConnector();
+    }
+
+    // ------------------------------ 辅助：引用编号 → 节点序号（引用不存在或不是滑键节点时为-1） ------------------------------
+    private static int lookup(int[] nodeBySymbol, int symbol) {
+        return symbol < 0 ? -1 : nodeBySymbol[symbol];
+    }
+
+    // ------------------------------ 辅助：登记一条from→to的后继边（重复边以首次为准） ------------------------------
+    private void link(int from, int to, int[] next, boolean[] hasPrev) {
+        if (from < 0 || to < 0 || from == to || next[from] >= 0 || hasPrev[to]) {
+            return;
+        }
+        next[from] = to;
+        hasPrev[to] = true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.note.chart;
+
+import java.util.Arrays;
+
+/**
+ * 单个谱面的符号表：把name / ref等字符串驻留为从0开始连续的int编号
+ * 直接在解析器的字符缓冲上查找，已出现过的名称不再创建String；编号连续，可以直接用作数组下标
+ * 同一次解码的所有实体共用一个符号表（非线程安全，解码完成后只读）
+ */
+public class SymbolTable {
+    // 空字符串固定为0号（实体没有name时也视为空名称）
+    public static final int EMPTY = 0;
+    // 不存在的引用
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int size;
+    // 开放寻址哈希表：槽位存编号+1（0表示空槽）
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    public SymbolTable() {
+        intern("");
+    }
+
+    /**
+     * 驻留字符区间（解析器的字符缓冲），返回编号
+     */
+    public int intern(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(new String(chars, offset, length), hash, slot);
+            }
+            if (hashes[id] == hash && matches(names[id], chars, offset, length)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 驻留字符串，返回编号
+     */
+    public int intern(String name) {
+        char[] chars = name.toCharArray();
+        return intern(chars, 0, chars.length);
+    }
+
+    /**
+     * 编号 → 名称（NONE返回null）
+     */
+    public String name(int id) {
+        return id < 0 ? null : names[id];
+    }
+
+    /**
+     * 已驻留的符号数（编号范围为0 ~ size-1）
+     */
+    public int size() {
+        return size;
+    }
+
+    // ------------------------------ 辅助：登记新符号（装载率超过1/2时扩容重建） ------------------------------
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        }
+        return id;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    // 与String.hashCode相同的算法，再做一次混合（name多为连续数字，原始哈希也连续，线性探测会连成长串）
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+package com.note.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+/**
+ * 谱面包（zip / tar.gz）读写工具：按条目流式读写，不解压到磁盘
+ */
+public class ArchiveUtil {
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 支持的谱面包格式（按文件名后缀识别）
+     */
+    public enum ArchiveType {
+        ZIP, TAR_GZ;
+
+        /**
+         * 按文件名识别格式（.zip / .tar.gz / .tgz），不是谱面包时返回null
+         */
+        public static ArchiveType of(String fileName) {
+            String name = fileName.toLowerCase();
+            if (name.endsWith(".zip")) return ZIP;
+            if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) return TAR_GZ;
+            return null;
+        }
+    }
+
+    /**
+     * 判断文件是否为谱面包
+     */
+    public static boolean isArchiveFile(File file) {
+        return file.isFile() && ArchiveType.of(file.getName()) != null;
+    }
+
+    /**
+     * 打开谱面包，按顺序逐个读取条目
+     */
+    public static ArchiveInputStream<? extends ArchiveEntry> openReader(File archive) throws IOException {
+        ArchiveType type = ArchiveType.of(archive.getName());
+        if (type == null) {
+            throw new IOException("不支持的谱面包格式：" + archive.getName() + "（支持.zip/.tar.gz/.tgz）");
+        }
+        InputStream in = new BufferedInputStream(Files.newInputStream(archive.toPath()), IO_BUFFER_SIZE);
+        try {
+            return switch (type) {
+                case ZIP -> new ZipArchiveInputStream(in);
+                case TAR_GZ -> new TarArchiveInputStream(new GZIPInputStream(in, IO_BUFFER_SIZE));
+            };
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 创建输出谱面包（已存在时覆盖）
+     */
+    public static ArchiveWriter openWriter(File archive) throws IOException {
+        ArchiveType type = ArchiveType.of(archive.getName());
+        if (type == null) {
+            throw new IOException("不支持的谱面包格式：" + archive.getName() + "（支持.zip/.tar.gz/.tgz）");
+        }
+        File parent = archive.getAbsoluteFile().getParentFile();
+        if (parent != null) parent.mkdirs();
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(archive.toPath()), IO_BUFFER_SIZE);
+        return new ArchiveWriter(type, out);
+    }
+
+    /**
+     * 条目名是否可以安全使用（相对路径，不含..，防止写出到输出位置之外）
+     */
+    public static boolean isSafeEntryName(String name) {
+        if (name.isEmpty() || name.startsWith("/") || name.startsWith("\\") || name.contains(":")) {
+            return false;
+        }
+        for (String part : name.split("[/\\\\]")) {
+            if (part.equals("..")) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 条目内容生成器（把内容写到给定输出流）
+     */
+    @FunctionalInterface
+    public interface EntryContent {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 输出谱面包：逐个写入完整条目（条目内容先写入复用的内存缓冲，得到大小后再写入，tar格式要求事先知道大小）
+     * 非线程安全，只能在一个线程中写入
+     */
+    public static class ArchiveWriter implements Closeable {
+        private final ArchiveType type;
+        private final ZipArchiveOutputStream zip;
+        private final TarArchiveOutputStream tar;
+        private final EntryBuffer buffer = new EntryBuffer();
+
+        private ArchiveWriter(ArchiveType type, OutputStream out) throws IOException {
+            this.type = type;
+            if (type == ArchiveType.ZIP) {
+                zip = new ZipArchiveOutputStream(out);
+                tar = null;
+            } else {
+                zip = null;
+                tar = new TarArchiveOutputStream(new GZIPOutputStream(out, IO_BUFFER_SIZE));
+                tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            }
+        }
+
+        /**
+         * 写入一个条目
+         *
+         * @return 条目字节数（压缩前）
+         */
+        public int writeEntry(String name, EntryContent content) throws IOException {
+            buffer.reset();
+            content.writeTo(buffer);
+            writeEntry(name, buffer.array(), buffer.size());
+            return buffer.size();
+        }
+
+        private void writeEntry(String name, byte[] data, int length) throws IOException {
+            if (type == ArchiveType.ZIP) {
+                ZipArchiveEntry entry = new ZipArchiveEntry(name);
+                entry.setSize(length);
+                zip.putArchiveEntry(entry);
+                zip.write(data, 0, length);
+                zip.closeArchiveEntry();
+            } else {
+                TarArchiveEntry entry = new TarArchiveEntry(name);
+                entry.setSize(length);
+                tar.putArchiveEntry(entry);
+                tar.write(data, 0, length);
+                tar.closeArchiveEntry();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (type == ArchiveType.ZIP) {
+                zip.close();
+            } else {
+                tar.close();
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：可直接访问底层数组的内存缓冲（写入条目时省去一次复制） ------------------------------
+    private static class EntryBuffer extends ByteArrayOutputStream {
+        EntryBuffer() {
+            super(IO_BUFFER_SIZE);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.note.util;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 public class FileUtil {
     /**
@@ -31,4 +34,65 @@ public class FileUtil {
     public static boolean isJsonFile(File file) {
         return file.isFile() && file.getName().toLowerCase().endsWith(".json");
     }
+
+    /**
+     * 判断文件是否为可转译的谱面：.json、.json.gz，或Sonolus导出的无后缀gzip文件
+     * 其他.gz（如谱面包pack.tar.gz）不算谱面
+     */
+    public static boolean isChartFile(File file) {
+        if (!file.isFile()) return false;
+        String name = file.getName().toLowerCase();
+        if (name.endsWith(".json") || name.endsWith(".json.gz")) return true;
+        return name.indexOf('.') == -1 && isGzipFile(file);
+    }
+
+    /**
+     * 按名称判断是否可能是谱面（谱面包条目用）：.json、.json.gz或无后缀（无后缀时还需检查内容是否为gzip）
+     */
+    public static boolean isChartName(String name) {
+        String lower = getBaseName(name).toLowerCase();
+        return lower.endsWith(".json") || lower.endsWith(".json.gz") || lower.indexOf('.') == -1;
+    }
+
+    /**
+     * 名称是否无后缀（如Sonolus导出的level）
+     */
+    public static boolean hasNoExtension(String name) {
+        return getBaseName(name).indexOf('.') == -1;
+    }
+
+    /**
+     * 判断文件是否以gzip魔数（1F 8B）开头
+     */
+    public static boolean isGzipFile(File file) {
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read() == 0x1F && in.read() == 0x8B;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 输出文件名：去掉.gz后缀并保证以.json结尾（如 level → level.json，level.json.gz → level.json）
+     * 不同输入可能得到同一个输出名（如 a.json、a.json.gz、a 都是 a.json），批量转译时由BatchPipeline检测冲突
+     */
+    public static String getOutputFileName(File inputFile) {
+        return getOutputFileName(inputFile.getName());
+    }
+
+    /**
+     * 输出名称（谱面包条目保留目录部分，如 pack/level.json.gz → pack/level.json）
+     */
+    public static String getOutputFileName(String name) {
+        if (name.toLowerCase().endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.toLowerCase().endsWith(".json") ? name : name + ".json";
+    }
+
+    // ------------------------------ 辅助：路径中的最后一段 ------------------------------
+    private static String getBaseName(String name) {
+        int slash = Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\'));
+        return name.substring(slash + 1);
+    }
 }
\ No newline at end of file
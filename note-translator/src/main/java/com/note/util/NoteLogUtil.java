@@ -1,25 +1,35 @@
 package com.note.util;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.TimeZone;
-
-import org.slf4j.LoggerFactory;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import ch.qos.logback.classic.Logger;
-import ch.qos.logback.classic.LoggerContext;
-import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
-import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.FileAppender;
-
 /**
  * 谱面转译专用日志工具（每次转译生成独立时间命名日志）
  * 功能：1. 每转译1个文件/文件夹生成1个日志文档 2. 日志名含时间戳 3. 音符信息代号化缩写
+ * 每个实例自带缓冲写入器，不共用全局logback日志器，多个转译任务可在同一JVM内并行
+ * 日志先写入环形缓冲，由后台线程批量写盘，转译热路径不做文件I/O；详细程度由LogLevel控制
  */
-public class NoteLogUtil {
+public class NoteLogUtil implements AutoCloseable {
 
     // 音符类型枚举（代号化，精简日志篇幅）
     public enum NoteType {
@@ -40,100 +50,198 @@ public class NoteLogUtil {
         }
     }
 
-    private LoggerContext loggerContext;
-    private Logger noteLogger;
-    private String currentLogFilePath;
+    /**
+     * 日志详细程度：OFF=不写日志文件 SUMMARY=只记录开始/完成/错误 SAMPLED=额外按间隔抽样记录音符 FULL=逐音符记录
+     */
+    public enum LogLevel {
+        OFF, SUMMARY, SAMPLED, FULL;
+
+        /**
+         * 解析命令行参数（不区分大小写）
+         */
+        public static LogLevel parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("未知日志级别：" + value + "（可选：off/summary/sampled/full）");
+            }
+        }
+
+        /**
+         * 两个级别中较低（较简略）的一个
+         */
+        public LogLevel min(LogLevel other) {
+            return compareTo(other) <= 0 ? this : other;
+        }
+    }
+
+    private static final ZoneOffset LOG_ZONE = ZoneOffset.ofHours(8); // 东八区时间
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    private static final DateTimeFormatter LINE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final DateTimeFormatter HEADER_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final String LOG_DIR = "logs";
+    // 上一个日志文件的时间戳和序号（同一毫秒内创建多个日志时才追加序号区分文件名）
+    private static String lastFileStamp;
+    private static int lastFileSequence;
+    // 环形缓冲容量 / 后台线程每批最多写入的条数
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+    // SAMPLED级别下每隔多少个音符记录一条
+    private static final int SAMPLE_INTERVAL = 100;
+    // 等待后台线程处理刷新/关闭标记的最长时间（写入线程异常退出时不会无限等待）
+    private static final long MARKER_TIMEOUT_SECONDS = 30;
+
+    private final LogLevel level;
+    // 日志条目先进入环形缓冲（ArrayBlockingQueue底层为数组环形队列），由后台线程批量格式化写盘
+    private final BlockingQueue<LogEntry> buffer;
+    // 后台写入线程在第一次创建日志文件时才启动（只构造不写日志时不占用线程）
+    private Thread writerThread;
+    private final AtomicLong noteCounter = new AtomicLong();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // 后台写入线程已退出（之后入队的条目不会再被处理）
+    private volatile boolean writerStopped;
+    private volatile String currentLogFilePath;
+    // 以下字段只在后台写入线程中访问
+    private BufferedWriter writer;
 
     public NoteLogUtil() {
-        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
-        createNewLogFile(); // 初始化时创建首个日志
+        this(LogLevel.FULL);
+    }
+
+    public NoteLogUtil(LogLevel level) {
+        this.level = level;
+        if (level == LogLevel.OFF) {
+            buffer = null;
+            return;
+        }
+        buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+        // 首个日志文件和写入线程在第一次写日志时才创建，只构造不使用时不产生空日志
+    }
+
+    public LogLevel getLevel() {
+        return level;
     }
 
     /**
-     * 创建新的时间命名日志文件
+     * 创建新的时间命名日志文件（关闭并刷新上一个日志文件）
      */
     public void createNewLogFile() {
-        // 生成带时间戳的日志名（格式：note_translate_yyyyMMddHHmmssSSS.log）
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmssSSS");
-        sdf.setTimeZone(TimeZone.getTimeZone("UTC+8")); // 东八区时间
-        String logFileName = "note_translate_" + sdf.format(new Date()) + ".log";
-        String logDir = "logs";
-        new File(logDir).mkdirs(); // 确保logs文件夹存在
-        currentLogFilePath = logDir + "/" + logFileName;
+        if (level == LogLevel.OFF) return;
+        createLogFile(System.currentTimeMillis());
+    }
 
-        // 配置Logback输出到新文件
-        noteLogger = loggerContext.getLogger("NoteTranslator");
-        noteLogger.detachAndStopAllAppenders(); // 移除旧的Appender
+    // ------------------------------ 辅助：创建日志文件，文件头使用给定时间（懒创建时沿用触发创建的那条日志的时间，保证文件中时间不倒退） ------------------------------
+    private void createLogFile(long time) {
+        startWriter();
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), LOG_ZONE);
+        new File(LOG_DIR).mkdirs(); // 确保logs文件夹存在
+        currentLogFilePath = LOG_DIR + "/" + nextLogFileName(now);
+        enqueue(LogEntry.open(currentLogFilePath));
 
-        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
-        fileAppender.setContext(loggerContext);
-        fileAppender.setFile(currentLogFilePath);
+        enqueue(LogEntry.start("==================================== 新日志文档创建 ====================================").at(time));
+        enqueue(LogEntry.start("日志文档路径：" + currentLogFilePath).at(time));
+        enqueue(LogEntry.start("创建时间：" + HEADER_TIME_FORMAT.format(now) + "（UTC+8）").at(time));
+        enqueue(LogEntry.start("=======================================================================================").at(time));
+    }
 
-        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
-        encoder.setContext(loggerContext);
-        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} [%level] %msg%n"); // 日志格式：时间 [级别] 内容
-        encoder.start();
+    // ------------------------------ 辅助：生成带时间戳的日志名（格式：note_translate_yyyyMMddHHmmssSSS[_序号].log） ------------------------------
+    // 只有同一毫秒内已创建过日志、或同名文件已存在（如其他进程创建）时才追加序号
+    private static synchronized String nextLogFileName(LocalDateTime now) {
+        String stamp = FILE_NAME_FORMAT.format(now);
+        int sequence = stamp.equals(lastFileStamp) ? lastFileSequence + 1 : 0;
+        while (new File(LOG_DIR, logFileName(stamp, sequence)).exists()) {
+            sequence++;
+        }
+        lastFileStamp = stamp;
+        lastFileSequence = sequence;
+        return logFileName(stamp, sequence);
+    }
 
-        fileAppender.setEncoder(encoder);
-        fileAppender.start();
-        noteLogger.addAppender(fileAppender);
-        noteLogger.setLevel(ch.qos.logback.classic.Level.INFO);
-        noteLogger.setAdditive(false); // 避免重复输出到根日志
+    private static String logFileName(String stamp, int sequence) {
+        return "note_translate_" + stamp + (sequence == 0 ? "" : "_" + sequence) + ".log";
+    }
 
-        logTranslateStart("==================================== 新日志文档创建 ====================================");
-        logTranslateStart("日志文档路径：" + currentLogFilePath);
-        logTranslateStart("创建时间：" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()) + "（UTC+8）");
-        logTranslateStart("=======================================================================================");
+    /**
+     * 当前日志文件路径（OFF级别或尚未写过日志时为null）
+     */
+    public String getCurrentLogFilePath() {
+        return currentLogFilePath;
     }
 
     /**
      * 记录转译开始（含目标信息）
      */
     public void logTranslateStart(String targetInfo) {
-        noteLogger.info("==================================== 转译开始 ====================================");
-        noteLogger.info(targetInfo);
-        noteLogger.info("开始时间：" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + "（UTC+8）");
-        noteLogger.info("=======================================================================================");
+        if (level == LogLevel.OFF) return;
+        enqueue(LogEntry.start(targetInfo));
     }
 
     /**
-     * 记录转译完成（含统计信息）
+     * 记录转译完成（含统计信息），并把缓冲内容刷新到磁盘
      */
     public void logTranslateComplete(int totalNoteCount, String completeInfo) {
-        noteLogger.info("==================================== 转译完成 ====================================");
-        noteLogger.info(completeInfo);
-        noteLogger.info("总音符数：" + totalNoteCount);
-        noteLogger.info("完成时间：" + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date()) + "（UTC+8）");
-        noteLogger.info("=======================================================================================");
+        if (level == LogLevel.OFF) return;
+        enqueue(LogEntry.complete(totalNoteCount, completeInfo));
     }
 
     /**
      * 记录错误信息
      */
     public void logError(String errorMsg, Exception e) {
-        noteLogger.error("[错误] " + errorMsg);
-        if (e != null) {
-            noteLogger.error("异常详情：", e);
+        if (level == LogLevel.OFF) return;
+        if (e == null) {
+            enqueue(LogEntry.lines("ERROR", "[错误] " + errorMsg));
+            return;
         }
+        StringWriter stackTrace = new StringWriter();
+        e.printStackTrace(new PrintWriter(stackTrace));
+        enqueue(LogEntry.lines("ERROR", "[错误] " + errorMsg,
+                "异常详情：" + System.lineSeparator() + stackTrace.toString().stripTrailing()));
+    }
+
+    /**
+     * 记录警告信息（如谱面校验出的非致命问题）
+     */
+    public void logWarn(String warnMsg) {
+        if (level == LogLevel.OFF) return;
+        enqueue(LogEntry.lines("WARN", "[警告] " + warnMsg));
+    }
+
+    /**
+     * 是否记录逐音符日志（调用方可据此跳过准备日志参数的开销）
+     */
+    public boolean isNoteLogEnabled() {
+        return level == LogLevel.SAMPLED || level == LogLevel.FULL;
     }
 
     /**
      * 记录单音符转译信息（核心：过滤非音符元数据 + 显示节拍/轨道）
+     * 热路径只入队原始字段，字符串格式化在后台写入线程完成
      */
     public void logNoteTranslated(
             int index, int total, NoteType type, String name,
             double originalBeat, int originalLane,
             double translatedBeat, int translatedLane, String refs) {
+        logNoteTranslated(level, index, total, type, name, originalBeat, originalLane, translatedBeat, translatedLane, refs);
+    }
+
+    /**
+     * 按指定级别记录单音符转译信息（单次转译可以比日志本身更简略，但不会更详细）
+     */
+    public void logNoteTranslated(
+            LogLevel callLevel, int index, int total, NoteType type, String name,
+            double originalBeat, int originalLane,
+            double translatedBeat, int translatedLane, String refs) {
+        LogLevel level = this.level.min(callLevel);
+        if (level != LogLevel.SAMPLED && level != LogLevel.FULL) return;
         // 过滤非音符元数据（如Initialization/Stage/BPM_CHANGE等，避免报“未定义音符”）
         if (type == NoteType.OTHER && (name.isEmpty() || refs.isEmpty())) {
             return; // 非音符且无有效信息，跳过日志
         }
-        // 生成音符日志（含原始/偏移后的节拍、轨道）
-        noteLogger.info("[{}/{}] 类型={} | 名称={} | 原始(B={},L={}) | 偏移(B={},L={}) | 关联={}",
-                index, total, type.code, name,
-                originalBeat, originalLane,
-                translatedBeat, translatedLane,
-                refs);
+        if (level == LogLevel.SAMPLED && noteCounter.getAndIncrement() % SAMPLE_INTERVAL != 0) {
+            return;
+        }
+        enqueue(LogEntry.note(index, total, type, name, originalBeat, originalLane, translatedBeat, translatedLane, refs));
     }
 
     /**
@@ -174,4 +282,276 @@ public class NoteLogUtil {
     public String getRefs(JsonNode noteNode) {
         return noteNode.has("refs") ? noteNode.get("refs").asText() : "";
     }
+
+    /**
+     * 把已入队的日志写入磁盘（阻塞到写入完成）
+     */
+    public void flush() {
+        if (level == LogLevel.OFF || !isWriterStarted()) return;
+        LogEntry marker = LogEntry.flushMarker();
+        // 已关闭或写入线程已退出时标记不会入队，也就不用等待
+        if (enqueue(marker)) {
+            marker.awaitDone(MARKER_TIMEOUT_SECONDS);
+        }
+    }
+
+    /**
+     * 写完剩余日志并关闭日志文件
+     */
+    @Override
+    public void close() {
+        // 只有第一个关闭者发送关闭标记
+        if (level == LogLevel.OFF || !closed.compareAndSet(false, true)) return;
+        if (!isWriterStarted()) return; // 从未写过日志，没有需要关闭的文件
+        LogEntry marker = LogEntry.closeMarker();
+        if (put(marker)) {
+            marker.awaitDone(MARKER_TIMEOUT_SECONDS);
+        }
+    }
+
+    // ------------------------------ 辅助：入队（缓冲满时阻塞等待后台线程消费，不丢日志；返回false表示未入队） ------------------------------
+    private boolean enqueue(LogEntry entry) {
+        if (closed.get()) return false;
+        if (currentLogFilePath == null && entry.kind != LogEntry.Kind.OPEN && entry.kind != LogEntry.Kind.FLUSH) {
+            openFirstLogFile(entry.time);
+        }
+        return put(entry);
+    }
+
+    private boolean put(LogEntry entry) {
+        if (writerStopped) return false;
+        try {
+            buffer.put(entry);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ------------------------------ 辅助：启动后台写入线程（只启动一次） ------------------------------
+    private synchronized void startWriter() {
+        if (writerThread != null) return;
+        writerThread = new Thread(this::drainLoop, "note-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private synchronized boolean isWriterStarted() {
+        return writerThread != null;
+    }
+
+    // ------------------------------ 辅助：第一次写日志时创建日志文件（多线程同时写时只创建一个） ------------------------------
+    private synchronized void openFirstLogFile(long time) {
+        if (currentLogFilePath == null) {
+            createLogFile(time);
+        }
+    }
+
+    // ------------------------------ 后台写入线程：批量取出日志条目，格式化后写盘 ------------------------------
+    private void drainLoop() {
+        List<LogEntry> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (true) {
+                try {
+                    batch.add(buffer.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                boolean stop = false;
+                for (LogEntry entry : batch) {
+                    stop |= handle(entry);
+                }
+                batch.clear();
+                // 缓冲已空时刷新一次，批量写入的同时保证日志文件及时可见
+                if (buffer.isEmpty()) {
+                    flushWriter();
+                }
+                if (stop) return;
+            }
+        } finally {
+            // 无论正常关闭还是异常退出，都唤醒仍在等待的刷新/关闭调用方
+            writerStopped = true;
+            closeWriter();
+            batch.addAll(buffer);
+            buffer.clear();
+            for (LogEntry entry : batch) {
+                if (entry.done != null) entry.markDone();
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：处理单个日志条目（返回true表示写入线程结束） ------------------------------
+    private boolean handle(LogEntry entry) {
+        String time = LINE_TIME_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.time), LOG_ZONE));
+        try {
+            switch (entry.kind) {
+                case OPEN -> {
+                    closeWriter();
+                    writer = Files.newBufferedWriter(Paths.get(entry.text), StandardCharsets.UTF_8);
+                }
+                case START -> writeLines(time, "INFO",
+                        "==================================== 转译开始 ====================================",
+                        entry.text,
+                        "开始时间：" + time + "（UTC+8）",
+                        "=======================================================================================");
+                case COMPLETE -> writeLines(time, "INFO",
+                        "==================================== 转译完成 ====================================",
+                        entry.text,
+                        "总音符数：" + entry.total,
+                        "完成时间：" + time + "（UTC+8）",
+                        "=======================================================================================");
+                case LINES -> writeLines(time, entry.level, entry.lines);
+                // 生成音符日志（含原始/偏移后的节拍、轨道）
+                case NOTE -> writeLines(time, "INFO", "[" + entry.index + "/" + entry.total + "] 类型=" + entry.type.code
+                        + " | 名称=" + entry.name
+                        + " | 原始(B=" + entry.originalBeat + ",L=" + entry.originalLane + ")"
+                        + " | 偏移(B=" + entry.translatedBeat + ",L=" + entry.translatedLane + ")"
+                        + " | 关联=" + entry.text);
+                case FLUSH -> {
+                    flushWriter();
+                    entry.markDone();
+                }
+                case CLOSE -> {
+                    closeWriter();
+                    entry.markDone();
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("日志写入失败：" + currentLogFilePath + " → " + e.getMessage());
+        }
+        return false;
+    }
+
+    // ------------------------------ 辅助：同一时间戳下连续写入多行 ------------------------------
+    private void writeLines(String time, String lineLevel, String... lines) throws IOException {
+        if (writer == null) return;
+        for (String line : lines) {
+            writer.write(time);
+            writer.write(" [");
+            writer.write(lineLevel);
+            writer.write("] ");
+            writer.write(line);
+            writer.newLine();
+        }
+    }
+
+    private void flushWriter() {
+        if (writer == null) return;
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("日志写入失败：" + currentLogFilePath + " → " + e.getMessage());
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("日志关闭失败：" + currentLogFilePath + " → " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    // ------------------------------ 环形缓冲中的日志条目（音符条目只存原始字段，延迟格式化） ------------------------------
+    private static final class LogEntry {
+        enum Kind { OPEN, START, COMPLETE, LINES, NOTE, FLUSH, CLOSE }
+
+        final Kind kind;
+        long time = System.currentTimeMillis();
+        String level;
+        String text;
+        String[] lines;
+        int index;
+        int total;
+        NoteType type;
+        String name;
+        double originalBeat;
+        int originalLane;
+        double translatedBeat;
+        int translatedLane;
+        CountDownLatch done;
+
+        private LogEntry(Kind kind) {
+            this.kind = kind;
+        }
+
+        static LogEntry open(String path) {
+            LogEntry entry = new LogEntry(Kind.OPEN);
+            entry.text = path;
+            return entry;
+        }
+
+        static LogEntry start(String targetInfo) {
+            LogEntry entry = new LogEntry(Kind.START);
+            entry.text = targetInfo;
+            return entry;
+        }
+
+        static LogEntry complete(int totalNoteCount, String completeInfo) {
+            LogEntry entry = new LogEntry(Kind.COMPLETE);
+            entry.total = totalNoteCount;
+            entry.text = completeInfo;
+            return entry;
+        }
+
+        static LogEntry lines(String level, String... lines) {
+            LogEntry entry = new LogEntry(Kind.LINES);
+            entry.level = level;
+            entry.lines = lines;
+            return entry;
+        }
+
+        static LogEntry note(int index, int total, NoteType type, String name,
+                             double originalBeat, int originalLane,
+                             double translatedBeat, int translatedLane, String refs) {
+            LogEntry entry = new LogEntry(Kind.NOTE);
+            entry.index = index;
+            entry.total = total;
+            entry.type = type;
+            entry.name = name;
+            entry.originalBeat = originalBeat;
+            entry.originalLane = originalLane;
+            entry.translatedBeat = translatedBeat;
+            entry.translatedLane = translatedLane;
+            entry.text = refs;
+            return entry;
+        }
+
+        static LogEntry flushMarker() {
+            LogEntry entry = new LogEntry(Kind.FLUSH);
+            entry.done = new CountDownLatch(1);
+            return entry;
+        }
+
+        static LogEntry closeMarker() {
+            LogEntry entry = new LogEntry(Kind.CLOSE);
+            entry.done = new CountDownLatch(1);
+            return entry;
+        }
+
+        // 改用指定时间（文件头与触发创建日志文件的条目同一时间）
+        LogEntry at(long entryTime) {
+            time = entryTime;
+            return this;
+        }
+
+        void markDone() {
+            done.countDown();
+        }
+
+        void awaitDone(long timeoutSeconds) {
+            try {
+                if (!done.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                    System.err.println("等待日志写入超时（" + timeoutSeconds + "秒）");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.note.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池工具（批量并行转译用）
+ */
+public class ThreadUtil {
+
+    /**
+     * 解析线程数：小于等于0时使用全部CPU核心
+     */
+    public static int resolveThreads(int threads) {
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 当前JVM是否支持虚拟线程（JDK 21+）
+     */
+    public static boolean isVirtualThreadSupported() {
+        return findVirtualExecutorFactory() != null;
+    }
+
+    /**
+     * 创建转译工作线程池
+     *
+     * @param threads        平台线程数（小于等于0时使用全部CPU核心）
+     * @param virtualThreads 是否使用虚拟线程（JDK 21+，不支持时回退到平台线程）
+     */
+    public static ExecutorService newWorkerPool(int threads, boolean virtualThreads, String namePrefix) {
+        if (virtualThreads) {
+            Method factory = findVirtualExecutorFactory();
+            if (factory != null) {
+                try {
+                    return (ExecutorService) factory.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    // 回退到平台线程
+                }
+            }
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, namePrefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(resolveThreads(threads), threadFactory);
+    }
+
+    // ------------------------------ 辅助：反射查找Executors.newVirtualThreadPerTaskExecutor（编译目标为JDK 17） ------------------------------
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
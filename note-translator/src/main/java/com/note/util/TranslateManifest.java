@@ -0,0 +1,109 @@
+package com.note.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 增量批量转译清单（保存在输出文件夹中）
+ * 记录每个输入文件的内容哈希 + 转译参数 → 输出文件，内容和参数都没变且输出仍存在时跳过转译
+ */
+public class TranslateManifest {
+    public static final String FILE_NAME = ".translate-manifest.json";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * 清单中的单条记录
+     */
+    public static class Entry {
+        public String hash;
+        public String settings;
+        public String output;
+        public int entityCount;
+    }
+
+    private final File manifestFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private TranslateManifest(File manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * 读取输出文件夹中的清单（不存在或损坏时返回空清单）
+     */
+    public static TranslateManifest load(File outputFolder) {
+        TranslateManifest manifest = new TranslateManifest(new File(outputFolder, FILE_NAME));
+        if (manifest.manifestFile.isFile()) {
+            try {
+                Map<String, Entry> saved = OBJECT_MAPPER.readValue(manifest.manifestFile, new TypeReference<Map<String, Entry>>() {});
+                manifest.entries.putAll(saved);
+            } catch (IOException e) {
+                System.err.println("增量清单损坏，将全部重新转译：" + manifest.manifestFile.getAbsolutePath());
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * 计算已读入内存的文件内容的SHA-256（十六进制，转译时复用同一份内容，不再单独读文件）
+     */
+    public static String hash(ByteBuffer contents) {
+        MessageDigest digest = newDigest();
+        digest.update(contents.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("JVM不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 查找仍然有效的记录：哈希、参数一致且输出文件还在，否则返回null
+     */
+    public Entry findUpToDate(String inputName, String hash, String settings, File outputFolder) {
+        Entry entry = entries.get(inputName);
+        if (entry == null || !hash.equals(entry.hash) || !settings.equals(entry.settings)) {
+            return null;
+        }
+        return new File(outputFolder, entry.output).isFile() ? entry : null;
+    }
+
+    /**
+     * 记录一次成功的转译
+     */
+    public void record(String inputName, String hash, String settings, String output, int entityCount) {
+        Entry entry = new Entry();
+        entry.hash = hash;
+        entry.settings = settings;
+        entry.output = output;
+        entry.entityCount = entityCount;
+        entries.put(inputName, entry);
+    }
+
+    /**
+     * 保存清单（只保留本次输入文件夹中仍存在的文件，按文件名排序）
+     */
+    public void save(Set<String> currentInputs) throws IOException {
+        Map<String, Entry> sorted = new TreeMap<>();
+        entries.forEach((name, entry) -> {
+            if (currentInputs.contains(name)) sorted.put(name, entry);
+        });
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(manifestFile, sorted);
+    }
+}
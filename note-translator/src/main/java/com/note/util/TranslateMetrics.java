@@ -0,0 +1,245 @@
+package com.note.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * 单次运行的转译指标（每个谱面各阶段耗时、读写字节数、实体吞吐、堆内存峰值）
+ * 运行结束后在输出位置生成JSON + CSV报告，方便在大批量转译中找出慢谱面和慢阶段
+ */
+public class TranslateMetrics {
+    public static final String JSON_FILE_NAME = "translate-metrics.json";
+    public static final String CSV_FILE_NAME = "translate-metrics.csv";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String CSV_HEADER = "name,status,entities,bytesIn,bytesOut,readMs,parseMs,validateMs,transformMs,slideMs,writeMs,"
+            + "entitiesPerSec,peakHeapBytes,errors,warnings,error";
+
+    /**
+     * 单个谱面的指标（同一谱面的各阶段依次填写，经流水线队列在线程间传递，不需要额外同步）
+     */
+    public static class FileMetrics {
+        public final String name;
+        public int entityCount;
+        public long bytesIn;
+        public long bytesOut;
+        public long readNanos;
+        public long parseNanos;
+        public long validateNanos;
+        public long transformNanos; // 转译耗时（不含滑键组装）
+        public long slideNanos;
+        public long writeNanos;
+        public long peakHeapBytes; // 该谱面各阶段结束时采样到的最大已用堆内存
+        public int errorCount; // 校验出的错误数
+        public int warningCount; // 校验出的警告数
+        public boolean skipped;
+        public String error;
+
+        public FileMetrics(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 采样当前已用堆内存（每个阶段结束时调用）
+         */
+        public void sampleHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+        }
+
+        /**
+         * 实体吞吐（解析 + 校验 + 转译 + 滑键组装 + 写出，不含读盘）
+         */
+        public double entitiesPerSecond() {
+            long nanos = parseNanos + validateNanos + transformNanos + slideNanos + writeNanos;
+            return nanos == 0 ? 0.0 : entityCount * 1e9 / nanos;
+        }
+
+        String status() {
+            if (error != null) return "failed";
+            return skipped ? "skipped" : "ok";
+        }
+    }
+
+    private final List<FileMetrics> files = new ArrayList<>();
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+
+    public TranslateMetrics() {
+        // 从本次运行开始统计堆内存峰值
+        for (MemoryPoolMXBean pool : heapPools()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    /**
+     * 登记一个谱面（按读取顺序登记，报告中保持同样的顺序）
+     */
+    public synchronized FileMetrics add(String name) {
+        FileMetrics metrics = new FileMetrics(name);
+        files.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * 保存报告：输出为文件夹时写入文件夹内，输出为谱面包时写在谱面包旁边（xxx.zip.metrics.json/csv）
+     *
+     * @return JSON报告文件
+     */
+    public synchronized File save(File output) throws IOException {
+        long wallNanos = System.nanoTime() - startNanos;
+        File jsonFile;
+        File csvFile;
+        if (output.isDirectory()) {
+            jsonFile = new File(output, JSON_FILE_NAME);
+            csvFile = new File(output, CSV_FILE_NAME);
+        } else {
+            jsonFile = new File(output.getPath() + ".metrics.json");
+            csvFile = new File(output.getPath() + ".metrics.csv");
+        }
+        writeJson(jsonFile, wallNanos);
+        writeCsv(csvFile);
+        return jsonFile;
+    }
+
+    // ------------------------------ 辅助：JSON报告（汇总 + 逐个谱面） ------------------------------
+    private void writeJson(File jsonFile, long wallNanos) throws IOException {
+        int ok = 0, failed = 0, skipped = 0;
+        long entities = 0, bytesIn = 0, bytesOut = 0;
+        long read = 0, parse = 0, validate = 0, transform = 0, slide = 0, write = 0;
+        int errors = 0, warnings = 0;
+        for (FileMetrics file : files) {
+            switch (file.status()) {
+                case "ok" -> ok++;
+                case "failed" -> failed++;
+                default -> skipped++;
+            }
+            entities += file.entityCount;
+            bytesIn += file.bytesIn;
+            bytesOut += file.bytesOut;
+            read += file.readNanos;
+            parse += file.parseNanos;
+            validate += file.validateNanos;
+            errors += file.errorCount;
+            warnings += file.warningCount;
+            transform += file.transformNanos;
+            slide += file.slideNanos;
+            write += file.writeNanos;
+        }
+
+        try (JsonGenerator gen = JSON_FACTORY.createGenerator(jsonFile, JsonEncoding.UTF8)) {
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("summary");
+            gen.writeStringField("startedAt", startedAt.toString());
+            gen.writeNumberField("wallMs", millis(wallNanos));
+            gen.writeNumberField("files", files.size());
+            gen.writeNumberField("succeeded", ok);
+            gen.writeNumberField("failed", failed);
+            gen.writeNumberField("skipped", skipped);
+            gen.writeNumberField("entities", entities);
+            gen.writeNumberField("bytesIn", bytesIn);
+            gen.writeNumberField("bytesOut", bytesOut);
+            // 各阶段耗时为所有谱面之和（多线程时可能大于墙钟时间）
+            gen.writeNumberField("readMs", millis(read));
+            gen.writeNumberField("parseMs", millis(parse));
+            gen.writeNumberField("validateMs", millis(validate));
+            gen.writeNumberField("transformMs", millis(transform));
+            gen.writeNumberField("slideMs", millis(slide));
+            gen.writeNumberField("writeMs", millis(write));
+            gen.writeNumberField("entitiesPerSec", wallNanos == 0 ? 0.0 : round(entities * 1e9 / wallNanos));
+            gen.writeNumberField("peakHeapBytes", peakHeapBytes());
+            gen.writeNumberField("errors", errors);
+            gen.writeNumberField("warnings", warnings);
+            gen.writeEndObject();
+
+            gen.writeArrayFieldStart("files");
+            for (FileMetrics file : files) {
+                gen.writeStartObject();
+                gen.writeStringField("name", file.name);
+                gen.writeStringField("status", file.status());
+                gen.writeNumberField("entities", file.entityCount);
+                gen.writeNumberField("bytesIn", file.bytesIn);
+                gen.writeNumberField("bytesOut", file.bytesOut);
+                gen.writeNumberField("readMs", millis(file.readNanos));
+                gen.writeNumberField("parseMs", millis(file.parseNanos));
+                gen.writeNumberField("validateMs", millis(file.validateNanos));
+                gen.writeNumberField("transformMs", millis(file.transformNanos));
+                gen.writeNumberField("slideMs", millis(file.slideNanos));
+                gen.writeNumberField("writeMs", millis(file.writeNanos));
+                gen.writeNumberField("entitiesPerSec", round(file.entitiesPerSecond()));
+                gen.writeNumberField("peakHeapBytes", file.peakHeapBytes);
+                gen.writeNumberField("errors", file.errorCount);
+                gen.writeNumberField("warnings", file.warningCount);
+                if (file.error != null) gen.writeStringField("error", file.error);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    // ------------------------------ 辅助：CSV报告（每个谱面一行，方便表格排序） ------------------------------
+    private void writeCsv(File csvFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(csvFile.toPath(), StandardCharsets.UTF_8)) {
+            out.write(CSV_HEADER);
+            out.newLine();
+            for (FileMetrics file : files) {
+                out.write(csv(file.name) + "," + file.status() + "," + file.entityCount + ","
+                        + file.bytesIn + "," + file.bytesOut + ","
+                        + millis(file.readNanos) + "," + millis(file.parseNanos) + "," + millis(file.validateNanos) + ","
+                        + millis(file.transformNanos) + "," + millis(file.slideNanos) + ","
+                        + millis(file.writeNanos) + "," + round(file.entitiesPerSecond()) + ","
+                        + file.peakHeapBytes + "," + file.errorCount + "," + file.warningCount + "," + (file.error == null ? "" : csv(file.error)));
+                out.newLine();
+            }
+        }
+    }
+
+    // ------------------------------ 辅助：本次运行的堆内存峰值（各堆内存池峰值之和） ------------------------------
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools()) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) pools.add(pool);
+        }
+        return pools;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    // 保留三位小数
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    // CSV字段转义：含逗号、引号或换行时加引号
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
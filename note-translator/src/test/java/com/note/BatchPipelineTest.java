@@ -0,0 +1,171 @@
+package com.note;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.note.chart.ChartInput;
+import com.note.util.FileUtil;
+import com.note.util.NoteLogUtil.LogLevel;
+import com.note.util.TranslateManifest;
+
+/**
+ * 批量流水线：正常完成、增量模式跳过未变更的谱面，以及某个阶段以Error终止时整体失败而不是卡住
+ */
+public class BatchPipelineTest {
+    private static final byte[] CHART = ("{\"entities\":["
+            + "{\"archetype\":\"#BPM_CHANGE\",\"data\":[{\"name\":\"#BEAT\",\"value\":0},{\"name\":\"#BPM\",\"value\":120}]},"
+            + "{\"archetype\":\"TapNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1},{\"name\":\"lane\",\"value\":-2}]}"
+            + "]}").getBytes(StandardCharsets.UTF_8);
+    // 明显多于队列容量（等于转换线程数），保证失败时上游会阻塞在队列上
+    private static final int CHART_COUNT = 50;
+    private static final int WORKERS = 2;
+    private static final TranslateOptions OPTIONS = TranslateOptions.DEFAULTS.withLogLevel(LogLevel.OFF);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final NoteTranslator translator = new NoteTranslator(LogLevel.OFF);
+    private final BatchPipeline pipeline = new BatchPipeline(translator, OPTIONS, null, null, null);
+
+    @After
+    public void tearDown() {
+        translator.close();
+    }
+
+    @Test(timeout = 10_000)
+    public void translatesEveryChartInReadOrder() throws Exception {
+        AtomicInteger written = new AtomicInteger();
+        List<BatchPipeline.Result> results = pipeline.run(source(), (item, chart) -> {
+            written.incrementAndGet();
+            return 0;
+        }, WORKERS, false);
+
+        assertEquals(CHART_COUNT, results.size());
+        assertEquals(CHART_COUNT, written.get());
+        for (int i = 0; i < CHART_COUNT; i++) {
+            assertEquals("chart" + i + ".json", results.get(i).name());
+            assertEquals(2, results.get(i).entityCount());
+            assertNull(results.get(i).failure());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void incrementalRunSkipsUnchangedCharts() throws Exception {
+        File output = folder.newFolder("output");
+        assertEquals(0, incrementalRun(output, OPTIONS));
+        // 内容和参数都没变：全部跳过，不再写出
+        assertEquals(CHART_COUNT, incrementalRun(output, OPTIONS));
+        // 删除一个输出文件：只重新转译这一个
+        Files.delete(new File(output, "chart7.json").toPath());
+        assertEquals(CHART_COUNT - 1, incrementalRun(output, OPTIONS));
+        // 参数变化：全部重新转译
+        assertEquals(0, incrementalRun(output, OPTIONS.withCompact(true)));
+        assertEquals(CHART_COUNT, incrementalRun(output, OPTIONS.withCompact(true)));
+    }
+
+    @Test(timeout = 10_000)
+    public void writerErrorFailsRunInsteadOfHanging() throws Exception {
+        OutOfMemoryError error = new OutOfMemoryError("模拟写出阶段内存不足");
+        try {
+            pipeline.run(source(), (item, chart) -> {
+                throw error;
+            }, WORKERS, false);
+            fail("写出阶段异常终止时应抛出异常");
+        } catch (IllegalStateException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void sourceErrorFailsRunInsteadOfHanging() throws Exception {
+        StackOverflowError error = new StackOverflowError("模拟读取阶段异常");
+        BatchPipeline.Source source = source();
+        try {
+            pipeline.run(new BatchPipeline.Source() {
+                @Override
+                public int size() {
+                    return CHART_COUNT;
+                }
+
+                @Override
+                public BatchPipeline.SourceItem next() throws IOException {
+                    BatchPipeline.SourceItem item = source.next();
+                    if (item != null && item.name().equals("chart10.json")) {
+                        item.input().close();
+                        throw error;
+                    }
+                    return item;
+                }
+            }, (item, chart) -> 0, WORKERS, false);
+            fail("读取阶段异常终止时应抛出异常");
+        } catch (IllegalStateException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    // ------------------------------ 辅助：与批量转译相同，读取清单 → 运行 → 保存清单，返回跳过的谱面数 ------------------------------
+    private int incrementalRun(File output, TranslateOptions options) throws Exception {
+        TranslateManifest manifest = TranslateManifest.load(output);
+        BatchPipeline incremental = new BatchPipeline(translator, options, manifest, null, output);
+        AtomicInteger written = new AtomicInteger();
+        List<BatchPipeline.Result> results = incremental.run(source(), (item, chart) -> {
+            written.incrementAndGet();
+            File file = new File(output, FileUtil.getOutputFileName(item.name()));
+            Files.write(file.toPath(), CHART);
+            return CHART.length;
+        }, WORKERS, false);
+
+        int skipped = 0;
+        Set<String> inputs = new HashSet<>();
+        for (BatchPipeline.Result result : results) {
+            assertNull(result.failure());
+            assertEquals(2, result.entityCount());
+            if (result.skipped()) skipped++;
+            inputs.add(result.name());
+        }
+        assertEquals(CHART_COUNT - skipped, written.get());
+        manifest.save(inputs);
+        assertTrue(new File(output, TranslateManifest.FILE_NAME).isFile());
+        return skipped;
+    }
+
+    // ------------------------------ 辅助：内存中的谱面来源 ------------------------------
+    private BatchPipeline.Source source() {
+        return new BatchPipeline.Source() {
+            private int next;
+
+            @Override
+            public int size() {
+                return CHART_COUNT;
+            }
+
+            @Override
+            public BatchPipeline.SourceItem next() throws IOException {
+                if (next == CHART_COUNT) {
+                    return null;
+                }
+                String name = "chart" + next++ + ".json";
+                ChartInput input = ChartInput.read(new ByteArrayInputStream(CHART), CHART.length);
+                return new BatchPipeline.SourceItem(name, name, input, null);
+            }
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.note;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.note.chart.ChartEntity;
+import com.note.chart.ChartValidator;
+import com.note.chart.DevChart;
+import com.note.chart.Diagnostics;
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 反向转译中的双押：共用端点的SimLine不生成重复的单键，真正重叠的音符由校验报告
+ */
+public class NoteTranslatorTest {
+    private static final TranslateOptions OPTIONS = TranslateOptions.DEFAULTS.withLogLevel(LogLevel.OFF);
+    private static final String BPM = "{\"archetype\":\"#BPM_CHANGE\",\"data\":[{\"name\":\"#BEAT\",\"value\":0},{\"name\":\"#BPM\",\"value\":120}]}";
+
+    private final NoteTranslator translator = new NoteTranslator(LogLevel.OFF);
+    private final ChartValidator validator = new ChartValidator();
+
+    @After
+    public void tearDown() {
+        translator.close();
+    }
+
+    @Test
+    public void simLinesSharingTapEndpointAddNoSingles() throws IOException {
+        List<ChartEntity> entities = read(BPM,
+                note("TapNote", "1", 1, -2),
+                note("TapNote", "2", 1, 0),
+                note("FlickNote", "3", 1, 2),
+                simLine("1", "2"),
+                simLine("2", "3"));
+        DevChart chart = translator.translateEntities(entities, OPTIONS);
+
+        assertEquals(3, count(chart, DevChart.KIND_SINGLE));
+        assertNoStackedNotes(validator.validate(chart));
+    }
+
+    @Test
+    public void simLinesSharingEndpointWithoutNoteAddOneSingle() throws IOException {
+        // 端点是IgnoredNote：第一条SimLine补一个单键，第二条SimLine在同一位置不再重复生成
+        List<ChartEntity> entities = read(BPM,
+                note("IgnoredNote", "1", 1, 0),
+                note("TapNote", "2", 1, -2),
+                note("TapNote", "3", 1, 2),
+                simLine("1", "2"),
+                simLine("3", "1"));
+        DevChart chart = translator.translateEntities(entities, OPTIONS);
+
+        assertEquals(3, count(chart, DevChart.KIND_SINGLE));
+        assertNoStackedNotes(validator.validate(chart));
+    }
+
+    @Test
+    public void simLineOnSlideEndAddsNoSingle() throws IOException {
+        List<ChartEntity> entities = read(BPM,
+                "{\"archetype\":\"SlideStartNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1},{\"name\":\"lane\",\"value\":0},{\"name\":\"first\",\"ref\":\"1\"}]}",
+                "{\"archetype\":\"SlideEndNote\",\"name\":\"2\",\"data\":[{\"name\":\"#BEAT\",\"value\":2},{\"name\":\"lane\",\"value\":1},{\"name\":\"first\",\"ref\":\"1\"},{\"name\":\"prev\",\"ref\":\"1\"}]}",
+                note("TapNote", "3", 2, 3),
+                note("TapNote", "4", 2, -1),
+                simLine("2", "3"),
+                simLine("4", "2"));
+        DevChart chart = translator.translateEntities(entities, OPTIONS);
+
+        assertEquals(2, count(chart, DevChart.KIND_SINGLE));
+        assertEquals(1, count(chart, DevChart.KIND_SLIDE));
+        assertNoStackedNotes(validator.validate(chart));
+    }
+
+    @Test
+    public void stackedTapsAreReported() throws IOException {
+        // 谱面本身有两个同拍同轨的Tap：转译照常输出，校验报告重叠
+        List<ChartEntity> entities = read(BPM,
+                note("TapNote", "1", 1, 0),
+                note("TapNote", "2", 1, 0),
+                note("TapNote", "3", 1, 2),
+                simLine("1", "3"),
+                simLine("2", "3"));
+        Diagnostics compiled = validator.validate(entities);
+        assertEquals(compiled.summary(), 1, compiled.size());
+        assertEquals(Diagnostics.Code.STACKED_NOTE, compiled.getCode(0));
+        assertEquals(2, compiled.getEntity(0));
+
+        DevChart chart = translator.translateEntities(entities, OPTIONS);
+        assertEquals(3, count(chart, DevChart.KIND_SINGLE));
+        Diagnostics dev = validator.validate(chart);
+        assertEquals(dev.summary(), 1, dev.size());
+        assertEquals(Diagnostics.Code.STACKED_NOTE, dev.getCode(0));
+    }
+
+    // ------------------------------ 辅助：构造已编译谱面 ------------------------------
+    private List<ChartEntity> read(String... entities) throws IOException {
+        String json = "{\"entities\":[" + String.join(",", entities) + "]}";
+        return translator.readEntities(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String note(String archetype, String name, double beat, int lane) {
+        return "{\"archetype\":\"" + archetype + "\",\"name\":\"" + name + "\",\"data\":["
+                + "{\"name\":\"#BEAT\",\"value\":" + beat + "},{\"name\":\"lane\",\"value\":" + lane + "}]}";
+    }
+
+    private static String simLine(String a, String b) {
+        return "{\"archetype\":\"SimLine\",\"data\":[{\"name\":\"a\",\"ref\":\"" + a + "\"},{\"name\":\"b\",\"ref\":\"" + b + "\"}]}";
+    }
+
+    private static int count(DevChart chart, int kind) {
+        int count = 0;
+        for (int i = 0; i < chart.getNoteCount(); i++) {
+            if (chart.getKind(i) == kind) count++;
+        }
+        return count;
+    }
+
+    private static void assertNoStackedNotes(Diagnostics diagnostics) {
+        for (int i = 0; i < diagnostics.size(); i++) {
+            assertTrue(diagnostics.format(i), diagnostics.getCode(i) != Diagnostics.Code.STACKED_NOTE);
+        }
+    }
+}
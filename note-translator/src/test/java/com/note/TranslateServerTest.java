@@ -0,0 +1,127 @@
+package com.note;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 本地HTTP转译服务（端口0自动分配，只走127.0.0.1）
+ */
+public class TranslateServerTest {
+    // 一个BPM + 一个Tap（已编译轨道-2 → 开发态轨道1）
+    private static final String CHART = "{\"entities\":["
+            + "{\"archetype\":\"#BPM_CHANGE\",\"data\":[{\"name\":\"#BEAT\",\"value\":0},{\"name\":\"#BPM\",\"value\":120}]},"
+            + "{\"archetype\":\"TapNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1},{\"name\":\"lane\",\"value\":-2}]}"
+            + "]}";
+
+    private TranslateServer server;
+    private HttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TranslateServer(0, 1, LogLevel.OFF);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void healthReturnsOk() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/health")).GET());
+        assertEquals(200, response.statusCode());
+        assertEquals("ok", response.body());
+    }
+
+    @Test
+    public void translatesPostedChart() throws Exception {
+        HttpResponse<String> response = post("/translate?compact=true", CHART);
+        assertEquals(200, response.statusCode());
+        assertEquals("2", response.headers().firstValue("X-Entity-Count").orElse(null));
+        assertEquals("[{\"type\":\"BPM\",\"bpm\":120.0,\"beat\":0.0},{\"type\":\"Single\",\"beat\":1.0,\"lane\":1}]",
+                response.body());
+    }
+
+    @Test
+    public void appliesQueryOffsets() throws Exception {
+        HttpResponse<String> response = post("/translate?compact=true&laneOffset=2&verticalOffset=0.5", CHART);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body(), response.body().contains("{\"type\":\"Single\",\"beat\":1.5,\"lane\":0}"));
+    }
+
+    @Test
+    public void compileReversesTranslate() throws Exception {
+        String dev = post("/translate?compact=true", CHART).body();
+        HttpResponse<String> response = post("/compile?compact=true", dev);
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body(), response.body().contains(
+                "{\"archetype\":\"TapNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1.0},{\"name\":\"lane\",\"value\":-2}]}"));
+    }
+
+    @Test
+    public void rejectsTimeOffsetWithoutBpm() throws Exception {
+        String chart = "{\"entities\":["
+                + "{\"archetype\":\"TapNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1},{\"name\":\"lane\",\"value\":-2}]}"
+                + "]}";
+        HttpResponse<String> response = post("/translate?timeOffsetMs=50", chart);
+        assertEquals(422, response.statusCode());
+        assertTrue(response.body(), response.body().startsWith("谱面无法转译"));
+        // 不要求毫秒微调时照常转译
+        assertEquals(200, post("/translate", chart).statusCode());
+    }
+
+    @Test
+    public void rejectsSlideWithOnePoint() throws Exception {
+        HttpResponse<String> response = post("/compile",
+                "[{\"type\":\"BPM\",\"bpm\":120.0,\"beat\":0.0},{\"type\":\"Slide\",\"connections\":[{\"beat\":1.0,\"lane\":2}]}]");
+        assertEquals(422, response.statusCode());
+    }
+
+    @Test
+    public void rejectsNonPost() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/translate")).GET());
+        assertEquals(405, response.statusCode());
+    }
+
+    @Test
+    public void rejectsMalformedChart() throws Exception {
+        HttpResponse<String> response = post("/translate", "{\"entities\":");
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body(), response.body().startsWith("谱面解析失败"));
+    }
+
+    @Test
+    public void rejectsMalformedQuery() throws Exception {
+        HttpResponse<String> response = post("/translate?laneOffset=abc", CHART);
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body(), response.body().startsWith("参数格式错误"));
+    }
+
+    // ------------------------------ 辅助：请求 ------------------------------
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,142 @@
+package com.note.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * BPM时间轴：重复拍、第一个BPM之前的外推、拍 ↔ 秒往返、无效BPM
+ */
+public class BpmTimelineTest {
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void convertsAcrossBpmChanges() {
+        // 0拍120BPM（每拍0.5秒），4拍起60BPM（每拍1秒）
+        BpmTimeline timeline = BpmTimeline.of(new double[]{0, 4}, new double[]{120, 60}, 2);
+        assertEquals(0.0, timeline.timeAt(0), EPSILON);
+        assertEquals(2.0, timeline.timeAt(4), EPSILON);
+        assertEquals(3.5, timeline.timeAt(5.5), EPSILON);
+        assertEquals(5.5, timeline.beatAt(3.5), EPSILON);
+        assertEquals(60.0, timeline.bpmAt(4), EPSILON);
+        assertEquals(120.0, timeline.bpmAt(3.999), EPSILON);
+    }
+
+    @Test
+    public void sortsUnorderedChanges() {
+        BpmTimeline timeline = BpmTimeline.of(new double[]{4, 0}, new double[]{60, 120}, 2);
+        assertEquals(2, timeline.size());
+        assertEquals(2.0, timeline.timeAt(4), EPSILON);
+        assertEquals(120.0, timeline.bpmAt(1), EPSILON);
+    }
+
+    @Test
+    public void duplicateBeatKeepsLaterChange() {
+        BpmTimeline timeline = BpmTimeline.of(new double[]{0, 4, 4}, new double[]{120, 90, 180}, 3);
+        assertEquals(2, timeline.size());
+        assertEquals(180.0, timeline.bpmAt(4), EPSILON);
+        assertEquals(180.0, timeline.bpmAt(10), EPSILON);
+        // 4拍前按120BPM，之后按180BPM（每拍1/3秒）
+        assertEquals(2.0 + 4.0 / 3.0, timeline.timeAt(8), EPSILON);
+    }
+
+    @Test
+    public void duplicateBeatOrderFollowsChartOrderAfterSorting() {
+        // 排序是稳定的：同一拍的变更保持谱面中的先后顺序
+        BpmTimeline timeline = BpmTimeline.of(new double[]{8, 0, 8}, new double[]{200, 120, 150}, 3);
+        assertEquals(150.0, timeline.bpmAt(8), EPSILON);
+    }
+
+    @Test
+    public void extrapolatesBeforeFirstChange() {
+        // 第一个BPM在4拍：之前的部分沿用120BPM，beat=0仍对应0秒
+        BpmTimeline timeline = BpmTimeline.of(new double[]{4}, new double[]{120}, 1);
+        assertEquals(0.0, timeline.timeAt(0), EPSILON);
+        assertEquals(1.0, timeline.timeAt(2), EPSILON);
+        assertEquals(-0.5, timeline.timeAt(-1), EPSILON);
+        assertEquals(1.0, timeline.beatAt(0.5), EPSILON);
+        assertEquals(-2.0, timeline.beatAt(-1), EPSILON);
+        assertEquals(120.0, timeline.bpmAt(-3), EPSILON);
+    }
+
+    @Test
+    public void beatTimeRoundTrip() {
+        BpmTimeline timeline = BpmTimeline.of(
+                new double[]{2, 0, 16, 33.5, 64}, new double[]{150, 120, 200, 87.5, 240}, 5);
+        for (double beat = -4; beat <= 80; beat += 0.125) {
+            assertEquals(beat, timeline.beatAt(timeline.timeAt(beat)), EPSILON);
+        }
+        for (double beat : new double[]{0, 2, 16, 33.5, 64}) {
+            assertEquals(beat, timeline.beatAt(timeline.timeAt(beat)), EPSILON);
+        }
+    }
+
+    @Test
+    public void buildsFromDevChartBpms() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addSingle(1, 0, false);
+        chart.addBpm(4, 60);
+        BpmTimeline timeline = BpmTimeline.of(chart);
+        assertEquals(2, timeline.size());
+        assertEquals(3.0, timeline.timeAt(5), EPSILON);
+    }
+
+    @Test
+    public void sortsLargeReversedInput() {
+        int count = 20_000;
+        double[] beats = new double[count];
+        double[] bpms = new double[count];
+        for (int i = 0; i < count; i++) {
+            beats[i] = count - 1 - i;
+            bpms[i] = 60;
+        }
+        // 拍0的BPM改为120：排序后仍然对应拍0
+        bpms[count - 1] = 120;
+        BpmTimeline timeline = BpmTimeline.of(beats, bpms, count);
+        assertEquals(count, timeline.size());
+        assertEquals(120.0, timeline.bpmAt(0.5), EPSILON);
+        assertEquals(0.5 + (count - 2), timeline.timeAt(count - 1), EPSILON);
+    }
+
+    @Test
+    public void rejectsInvalidBpm() {
+        for (double bpm : new double[]{0, -120, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertRejected(new double[]{0, 4}, new double[]{120, bpm});
+        }
+    }
+
+    @Test
+    public void rejectsNonFiniteBeat() {
+        assertRejected(new double[]{0, Double.NaN}, new double[]{120, 150});
+        assertRejected(new double[]{Double.NEGATIVE_INFINITY}, new double[]{120});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidBpmInDevChart() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addBpm(4, 0);
+        BpmTimeline.of(chart);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void emptyTimelineCannotConvert() {
+        BpmTimeline timeline = BpmTimeline.of(new double[0], new double[0], 0);
+        assertTrue(timeline.isEmpty());
+        timeline.timeAt(1);
+    }
+
+    private static void assertRejected(double[] beats, double[] bpms) {
+        try {
+            BpmTimeline.of(beats, bpms, beats.length);
+            fail("无效的BPM变更应被拒绝：" + Arrays.toString(beats) + " / " + Arrays.toString(bpms));
+        } catch (IllegalArgumentException expected) {
+            // 拒绝而不是产生Infinity/NaN
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.note.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.note.chart.ChartDiff.Change;
+import com.note.chart.ChartDiff.Result;
+
+/**
+ * 谱面结构对比：移动（同拍换轨）与删除+新增的区分、BPM数值修改
+ */
+public class ChartDiffTest {
+    private final ChartDiff diff = new ChartDiff();
+
+    @Test
+    public void identicalChartsHaveNoChanges() {
+        Result result = diff.diff(baseChart(), baseChart());
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void laneChangeOnSameBeatIsMove() {
+        Result result = diff.diff(chart(1, 1), chart(1, 3));
+        assertCounts(result, 0, 0, 1, 0);
+        assertEquals(Change.MOVED, result.getChange(0));
+        assertEquals("~ 移动 | Single | 拍 1.0 | 轨 1 → 3", result.format(0));
+    }
+
+    @Test
+    public void beatChangeIsRemoveAndAdd() {
+        Result result = diff.diff(chart(1, 1), chart(1.5, 1));
+        assertCounts(result, 1, 1, 0, 0);
+        assertEquals("- 删除 | Single | 拍 1.0 | 轨 1", result.format(0));
+        assertEquals("+ 新增 | Single | 拍 1.5 | 轨 1", result.format(1));
+    }
+
+    @Test
+    public void typeChangeIsRemoveAndAdd() {
+        DevChart newChart = new DevChart();
+        newChart.addBpm(0, 120);
+        newChart.addSingle(1, 3, true);
+        Result result = diff.diff(chart(1, 1), newChart);
+        // Single → Single(flick)：类型不同，不配对为移动
+        assertCounts(result, 1, 1, 0, 0);
+    }
+
+    @Test
+    public void moveOnlyPairsNotesOfSameBeat() {
+        DevChart oldChart = new DevChart();
+        oldChart.addBpm(0, 120);
+        oldChart.addSingle(1, 0, false);
+        oldChart.addSingle(2, 4, false);
+        DevChart newChart = new DevChart();
+        newChart.addBpm(0, 120);
+        newChart.addSingle(1, 2, false);
+        newChart.addSingle(3, 4, false);
+        Result result = diff.diff(oldChart, newChart);
+        assertCounts(result, 1, 1, 1, 0);
+        assertEquals("~ 移动 | Single | 拍 1.0 | 轨 0 → 2", result.format(0));
+        assertEquals("- 删除 | Single | 拍 2.0 | 轨 4", result.format(1));
+        assertEquals("+ 新增 | Single | 拍 3.0 | 轨 4", result.format(2));
+    }
+
+    @Test
+    public void bpmValueChangeIsChanged() {
+        DevChart newChart = baseChart();
+        DevChart oldChart = new DevChart();
+        oldChart.addBpm(0, 120);
+        oldChart.addBpm(8, 180);
+        oldChart.addSingle(1, 2, false);
+        Result result = diff.diff(oldChart, newChart);
+        assertCounts(result, 0, 0, 0, 1);
+        assertEquals("~ 修改 | BPM | 拍 8.0 | 180.0 → 150.0", result.format(0));
+    }
+
+    @Test
+    public void bpmBeatChangeIsRemoveAndAdd() {
+        DevChart oldChart = new DevChart();
+        oldChart.addBpm(0, 120);
+        oldChart.addBpm(4, 150);
+        oldChart.addSingle(1, 2, false);
+        Result result = diff.diff(oldChart, baseChart());
+        assertCounts(result, 1, 1, 0, 0);
+        assertEquals("- 删除 | BPM | 拍 4.0 | 150.0", result.format(0));
+        assertEquals("+ 新增 | BPM | 拍 8.0 | 150.0", result.format(1));
+    }
+
+    @Test
+    public void slidePointsAreComparedIndividually() {
+        Result result = diff.diff(slideChart(2), slideChart(5));
+        assertCounts(result, 0, 0, 1, 0);
+        assertEquals("~ 移动 | Slide节点 | 拍 2.0 | 轨 2 → 5", result.format(0));
+    }
+
+    @Test
+    public void metaEntriesAreIgnored() {
+        DevChart newChart = baseChart();
+        newChart.addOther("Meta", 0, 0, "", "");
+        assertTrue(diff.diff(baseChart(), newChart).isEmpty());
+    }
+
+    @Test
+    public void beatsWithinHalfTickAreSameBeat() {
+        Result result = diff.diff(chart(1.0 / 3.0, 1), chart(0.1 + 0.1 + 0.1 + 1.0 / 30.0, 1));
+        assertTrue(result.isEmpty());
+    }
+
+    // ------------------------------ 辅助：构造谱面 ------------------------------
+    private static DevChart baseChart() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addBpm(8, 150);
+        chart.addSingle(1, 2, false);
+        return chart;
+    }
+
+    private static DevChart chart(double beat, int lane) {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addSingle(beat, lane, false);
+        return chart;
+    }
+
+    private static DevChart slideChart(int middleLane) {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 1, 1);
+        chart.addSlidePoint(slide, 2, middleLane);
+        chart.addSlidePoint(slide, 3, 3);
+        return chart;
+    }
+
+    private static void assertCounts(Result result, int removed, int added, int moved, int changed) {
+        assertEquals(result.summary(), removed, result.count(Change.REMOVED));
+        assertEquals(result.summary(), added, result.count(Change.ADDED));
+        assertEquals(result.summary(), moved, result.count(Change.MOVED));
+        assertEquals(result.summary(), changed, result.count(Change.CHANGED));
+        assertEquals(removed + added + moved + changed, result.size());
+    }
+}
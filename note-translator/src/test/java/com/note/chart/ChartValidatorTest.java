@@ -0,0 +1,287 @@
+package com.note.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.note.chart.Diagnostics.Code;
+
+/**
+ * 谱面校验：每种诊断码、已编译（-3..3）与开发态（0..6）的轨道范围、指向后面实体的引用
+ */
+public class ChartValidatorTest {
+    private final ChartValidator validator = new ChartValidator();
+
+    // ------------------------------ 已编译谱面 ------------------------------
+    @Test
+    public void validCompiledChartHasNoDiagnostics() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", 1, -3),
+                note("FlickNote", "2", 1, 3),
+                slide("SlideStartNote", "3", 2, 0, null, null),
+                slide("SlideEndNote", "4", 3, 1, "3", "3"),
+                connector("3", "3", "4"),
+                simLine("1", "2"));
+        assertTrue(diagnostics.summary(), diagnostics.isEmpty());
+    }
+
+    @Test
+    public void forwardRefResolvedLaterIsValid() throws IOException {
+        // SimLine和连接器写在端点之前：扫描结束后核对，不算悬空
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                simLine("1", "2"),
+                connector("3", "3", "4"),
+                note("TapNote", "1", 1, 0),
+                note("TapNote", "2", 1, 2),
+                slide("SlideStartNote", "3", 2, 0, null, null),
+                slide("SlideEndNote", "4", 3, 1, "3", "3"));
+        assertTrue(diagnostics.summary(), diagnostics.isEmpty());
+    }
+
+    @Test
+    public void forwardRefNeverResolvedIsDangling() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                simLine("1", "9"),
+                note("TapNote", "1", 1, 0));
+        assertOnly(diagnostics, Code.DANGLING_REF, 1);
+        assertEquals("9", diagnostics.getDetail(0));
+    }
+
+    @Test
+    public void simLineWithoutBothRefs() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", 1, 0),
+                "{\"archetype\":\"SimLine\",\"data\":[{\"name\":\"a\",\"ref\":\"1\"}]}");
+        assertOnly(diagnostics, Code.SIMLINE_MISSING_REF, 2);
+    }
+
+    @Test
+    public void duplicateName() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", 1, 0),
+                note("TapNote", "1", 2, 0));
+        assertOnly(diagnostics, Code.DUPLICATE_NAME, 2);
+        assertEquals("1", diagnostics.getDetail(0));
+    }
+
+    @Test
+    public void invalidBpm() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                bpm(4, 0),
+                note("TapNote", "1", 1, 0));
+        assertOnly(diagnostics, Code.INVALID_BPM, 1);
+    }
+
+    @Test
+    public void missingBpm() throws IOException {
+        Diagnostics diagnostics = validate(note("TapNote", "1", 1, 0));
+        assertOnly(diagnostics, Code.MISSING_BPM, -1);
+        // 没有音符时不要求BPM
+        assertTrue(validate(bpm(0, 120)).isEmpty());
+    }
+
+    @Test
+    public void slideBeatDecreasing() throws IOException {
+        // 前一个节点已出现时当场检查
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                slide("SlideStartNote", "1", 2, 0, null, null),
+                slide("SlideEndNote", "2", 1, 0, "1", "1"));
+        assertOnly(diagnostics, Code.SLIDE_BEAT_DECREASING, 2);
+
+        // 前一个节点在后面才出现时扫描结束后检查
+        diagnostics = validate(
+                bpm(0, 120),
+                slide("SlideEndNote", "2", 1, 0, "1", "1"),
+                slide("SlideStartNote", "1", 2, 0, null, null));
+        assertOnly(diagnostics, Code.SLIDE_BEAT_DECREASING, 1);
+    }
+
+    @Test
+    public void unknownArchetype() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("MysteryNote", "1", 1, 0));
+        assertOnly(diagnostics, Code.UNKNOWN_ARCHETYPE, 1);
+        assertEquals("MysteryNote", diagnostics.getDetail(0));
+    }
+
+    @Test
+    public void compiledLaneRange() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", 1, -3),
+                note("TapNote", "2", 1, 3),
+                note("TapNote", "3", 2, -4),
+                note("TapNote", "4", 2, 4));
+        assertEquals(diagnostics.summary(), 2, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.LANE_OUT_OF_RANGE, 3);
+        assertEquals(-4.0, diagnostics.getValue(0), 0.0);
+        assertDiagnostic(diagnostics, 1, Code.LANE_OUT_OF_RANGE, 4);
+        assertEquals(4.0, diagnostics.getValue(1), 0.0);
+    }
+
+    @Test
+    public void negativeBeat() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", -1, 0));
+        // 负拍数的音符同时早于第一个BPM
+        assertEquals(diagnostics.summary(), 2, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.NEGATIVE_BEAT, 1);
+        assertDiagnostic(diagnostics, 1, Code.NOTE_BEFORE_FIRST_BPM, 1);
+    }
+
+    @Test
+    public void stackedNotes() throws IOException {
+        Diagnostics diagnostics = validate(
+                bpm(0, 120),
+                note("TapNote", "1", 1, 0),
+                slide("SlideStartNote", "2", 1, 0, null, null),
+                slide("SlideEndNote", "3", 2, 0, "2", "2"));
+        assertOnly(diagnostics, Code.STACKED_NOTE, 2);
+        // 数值为先出现的实体下标
+        assertEquals(1.0, diagnostics.getValue(0), 0.0);
+    }
+
+    @Test
+    public void noteBeforeFirstBpm() throws IOException {
+        Diagnostics diagnostics = validate(
+                note("TapNote", "1", 2, 0),
+                bpm(4, 120),
+                note("TapNote", "2", 1, 0));
+        assertOnly(diagnostics, Code.NOTE_BEFORE_FIRST_BPM, 2);
+        assertEquals(1.0, diagnostics.getValue(0), 0.0);
+    }
+
+    // ------------------------------ 开发态谱面 ------------------------------
+    @Test
+    public void validDevChartHasNoDiagnostics() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addOther("Meta", 0, 0, "", "");
+        chart.addSingle(1, 0, false);
+        chart.addSingle(1, 6, true);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 2, 3);
+        chart.addSlidePoint(slide, 3, 3);
+        Diagnostics diagnostics = validator.validate(chart);
+        assertTrue(diagnostics.summary(), diagnostics.isEmpty());
+    }
+
+    @Test
+    public void devLaneRange() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addSingle(1, 0, false);
+        chart.addSingle(1, 6, false);
+        chart.addSingle(2, -1, false);
+        chart.addSingle(2, 7, false);
+        Diagnostics diagnostics = validator.validate(chart);
+        assertEquals(diagnostics.summary(), 2, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.LANE_OUT_OF_RANGE, 3);
+        assertDiagnostic(diagnostics, 1, Code.LANE_OUT_OF_RANGE, 4);
+    }
+
+    @Test
+    public void devSlideTooShortAndDecreasing() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        int shortSlide = chart.beginSlide();
+        chart.addSlidePoint(shortSlide, 1, 2);
+        int backwards = chart.beginSlide();
+        chart.addSlidePoint(backwards, 3, 4);
+        chart.addSlidePoint(backwards, 2, 4);
+        Diagnostics diagnostics = validator.validate(chart);
+        assertEquals(diagnostics.summary(), 2, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.SLIDE_TOO_SHORT, shortSlide);
+        assertEquals(1.0, diagnostics.getValue(0), 0.0);
+        assertDiagnostic(diagnostics, 1, Code.SLIDE_BEAT_DECREASING, backwards);
+    }
+
+    @Test
+    public void devTimingAndTypes() {
+        DevChart chart = new DevChart();
+        chart.addSingle(1, 2, false);
+        chart.addOther("Mystery", 2, 2, "", "");
+        chart.addSingle(1, 2, true);
+        Diagnostics diagnostics = validator.validate(chart);
+        assertEquals(diagnostics.summary(), 3, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.UNKNOWN_ARCHETYPE, 1);
+        assertDiagnostic(diagnostics, 1, Code.STACKED_NOTE, 2);
+        assertDiagnostic(diagnostics, 2, Code.MISSING_BPM, -1);
+        assertTrue(diagnostics.hasErrors());
+
+        chart = new DevChart();
+        chart.addBpm(0, -60);
+        chart.addBpm(2, 120);
+        chart.addSingle(1, 2, false);
+        diagnostics = validator.validate(chart);
+        assertEquals(diagnostics.summary(), 2, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, Code.INVALID_BPM, 0);
+        assertDiagnostic(diagnostics, 1, Code.NOTE_BEFORE_FIRST_BPM, 2);
+    }
+
+    // ------------------------------ 辅助：构造已编译谱面 ------------------------------
+    private Diagnostics validate(String... entities) throws IOException {
+        String json = "{\"entities\":[" + String.join(",", entities) + "]}";
+        List<ChartEntity> parsed = new ArrayList<>();
+        new ChartReader().read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), parsed::add);
+        return validator.validate(parsed);
+    }
+
+    private static String bpm(double beat, double bpm) {
+        return "{\"archetype\":\"#BPM_CHANGE\",\"data\":[" + value("#BEAT", beat) + "," + value("#BPM", bpm) + "]}";
+    }
+
+    private static String note(String archetype, String name, double beat, int lane) {
+        return "{\"archetype\":\"" + archetype + "\",\"name\":\"" + name + "\",\"data\":["
+                + value("#BEAT", beat) + "," + value("lane", lane) + "]}";
+    }
+
+    private static String slide(String archetype, String name, double beat, int lane, String first, String prev) {
+        String note = note(archetype, name, beat, lane);
+        String refs = (first == null ? "" : "," + ref("first", first)) + (prev == null ? "" : "," + ref("prev", prev));
+        return note.substring(0, note.length() - 2) + refs + "]}";
+    }
+
+    private static String connector(String first, String head, String tail) {
+        return "{\"archetype\":\"StraightSlideConnector\",\"data\":["
+                + ref("first", first) + "," + ref("head", head) + "," + ref("tail", tail) + "]}";
+    }
+
+    private static String simLine(String a, String b) {
+        return "{\"archetype\":\"SimLine\",\"data\":[" + ref("a", a) + "," + ref("b", b) + "]}";
+    }
+
+    private static String value(String name, double value) {
+        return "{\"name\":\"" + name + "\",\"value\":" + value + "}";
+    }
+
+    private static String ref(String name, String ref) {
+        return "{\"name\":\"" + name + "\",\"ref\":\"" + ref + "\"}";
+    }
+
+    private static void assertOnly(Diagnostics diagnostics, Code code, int entity) {
+        assertEquals(diagnostics.summary(), 1, diagnostics.size());
+        assertDiagnostic(diagnostics, 0, code, entity);
+    }
+
+    private static void assertDiagnostic(Diagnostics diagnostics, int i, Code code, int entity) {
+        assertEquals(diagnostics.format(i), code, diagnostics.getCode(i));
+        assertEquals(diagnostics.format(i), entity, diagnostics.getEntity(i));
+    }
+}
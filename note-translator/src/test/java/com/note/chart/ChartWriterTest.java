@@ -0,0 +1,188 @@
+package com.note.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.note.NoteTranslator;
+import com.note.TranslateOptions;
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 已编译谱面输出：开发态 → 已编译 → 开发态往返不丢音符，同拍配对生成SimLine（含滑键首尾节点）
+ */
+public class ChartWriterTest {
+    private static final TranslateOptions OPTIONS = TranslateOptions.DEFAULTS.withLogLevel(LogLevel.OFF);
+
+    private final NoteTranslator translator = new NoteTranslator(LogLevel.OFF);
+    private final ChartWriter writer = new ChartWriter();
+
+    @After
+    public void tearDown() {
+        translator.close();
+    }
+
+    @Test
+    public void devChartSurvivesRoundTrip() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addBpm(8, 180);
+        chart.addSingle(1, 0, false);
+        chart.addSingle(1.5, 6, true);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 2, 1);
+        chart.addSlidePoint(slide, 2.5, 2);
+        chart.addSlidePoint(slide, 3, 4);
+        // 与滑键终点同拍的单键：编译后通过SimLine连接
+        chart.addSingle(3, 6, false);
+        chart.addSingle(9, 3, true);
+        chart.addBpm(12, 90);
+
+        List<ChartEntity> compiled = compile(copyOf(chart));
+        DevChart roundTrip = translator.translateEntities(compiled, OPTIONS);
+
+        ChartDiff.Result result = new ChartDiff().diff(chart, roundTrip);
+        assertTrue(result.summary(), result.isEmpty());
+        assertEquals(1, count(compiled, Archetype.SIM_LINE));
+        assertEquals(1, count(compiled, Archetype.SLIDE_TICK_NOTE));
+        assertEquals(2, count(compiled, Archetype.STRAIGHT_SLIDE_CONNECTOR));
+        assertEquals(3, count(compiled, Archetype.BPM_CHANGE));
+    }
+
+    @Test
+    public void simLineLinksSlideEndToSingle() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 1, 3);
+        chart.addSlidePoint(slide, 2, 5);
+        chart.addSingle(2, 6, false);
+
+        List<ChartEntity> compiled = compile(chart);
+        ChartEntity simLine = only(compiled, Archetype.SIM_LINE);
+        assertEquals(Archetype.SLIDE_END_NOTE, named(compiled, simLine.getRefA()).getKind());
+        assertEquals(Archetype.TAP_NOTE, named(compiled, simLine.getRefB()).getKind());
+    }
+
+    @Test
+    public void simLineLinksSlideStarts() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        int left = chart.beginSlide();
+        chart.addSlidePoint(left, 1, 1);
+        chart.addSlidePoint(left, 2, 1);
+        int right = chart.beginSlide();
+        chart.addSlidePoint(right, 1, 5);
+        chart.addSlidePoint(right, 1.5, 5);
+        chart.addSlidePoint(right, 3, 5);
+
+        List<ChartEntity> compiled = compile(chart);
+        ChartEntity simLine = only(compiled, Archetype.SIM_LINE);
+        assertEquals(Archetype.SLIDE_START_NOTE, named(compiled, simLine.getRefA()).getKind());
+        assertEquals(Archetype.SLIDE_START_NOTE, named(compiled, simLine.getRefB()).getKind());
+        // 中继节点不参与配对
+        assertEquals(-2, named(compiled, simLine.getRefA()).getLane());
+        assertEquals(2, named(compiled, simLine.getRefB()).getLane());
+    }
+
+    @Test
+    public void sameBeatNotesPairWithLaneNeighbours() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addSingle(1, 6, false);
+        chart.addSingle(1, 0, false);
+        chart.addSingle(1, 3, true);
+        chart.addSingle(2, 3, false);
+
+        List<ChartEntity> compiled = compile(chart);
+        List<String> pairs = new ArrayList<>();
+        for (ChartEntity entity : compiled) {
+            if (entity.getKind() != Archetype.SIM_LINE) continue;
+            pairs.add(named(compiled, entity.getRefA()).getLane() + "-" + named(compiled, entity.getRefB()).getLane());
+        }
+        // 按轨道相邻连线：0-3、3-6，不连0-6，也不跨拍
+        assertEquals(List.of("-3-0", "0-3"), pairs);
+    }
+
+    @Test
+    public void compiledSimLineOnSlideEndSurvivesRoundTrip() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 1, 2);
+        chart.addSlidePoint(slide, 2, 5);
+        chart.addSingle(2, 6, false);
+        List<ChartEntity> compiled = compile(chart);
+
+        // 已编译 → 开发态 → 已编译：SimLine仍然存在，且单键没有重复
+        DevChart dev = translator.translateEntities(compiled, OPTIONS);
+        List<ChartEntity> recompiled = compile(dev);
+        assertEquals(1, count(recompiled, Archetype.SIM_LINE));
+        assertEquals(1, count(recompiled, Archetype.TAP_NOTE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slideWithOnePointIsRejected() throws IOException {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.addSingle(1, 2, false);
+        int slide = chart.beginSlide();
+        chart.addSlidePoint(slide, 1, 4);
+        writer.write(chart, new ByteArrayOutputStream(), false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compileRejectsSlideWithOnePoint() {
+        DevChart chart = new DevChart();
+        chart.addBpm(0, 120);
+        chart.beginSlide();
+        translator.compileChart(chart, OPTIONS);
+    }
+
+    // ------------------------------ 辅助：编译并读回实体 ------------------------------
+    private List<ChartEntity> compile(DevChart chart) throws IOException {
+        translator.compileChart(chart, OPTIONS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int entities = writer.write(chart, out, false);
+        List<ChartEntity> compiled = translator.readEntities(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(entities, compiled.size());
+        return compiled;
+    }
+
+    private static DevChart copyOf(DevChart chart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DevChartWriter().write(chart, out, false);
+        return new DevChartReader().read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static int count(List<ChartEntity> entities, Archetype kind) {
+        int count = 0;
+        for (ChartEntity entity : entities) {
+            if (entity.getKind() == kind) count++;
+        }
+        return count;
+    }
+
+    private static ChartEntity only(List<ChartEntity> entities, Archetype kind) {
+        assertEquals(1, count(entities, kind));
+        for (ChartEntity entity : entities) {
+            if (entity.getKind() == kind) return entity;
+        }
+        throw new AssertionError();
+    }
+
+    private static ChartEntity named(List<ChartEntity> entities, String name) {
+        for (ChartEntity entity : entities) {
+            if (name.equals(entity.getName())) return entity;
+        }
+        throw new AssertionError("找不到实体：" + name);
+    }
+}
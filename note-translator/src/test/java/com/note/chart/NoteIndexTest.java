@@ -0,0 +1,82 @@
+package com.note.chart;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * 音符位置索引：登记/查找、拍数量化、负拍数和负轨道、扩容
+ */
+public class NoteIndexTest {
+
+    @Test
+    public void putIfAbsentKeepsFirstNote() {
+        NoteIndex index = new NoteIndex(4);
+        assertEquals(-1, index.putIfAbsent(1.5, 2, 7));
+        assertEquals(7, index.putIfAbsent(1.5, 2, 8));
+        assertEquals(7, index.get(1.5, 2));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void distinguishesBeatAndLane() {
+        NoteIndex index = new NoteIndex(4);
+        index.putIfAbsent(1.0, 2, 0);
+        assertEquals(-1, index.get(1.0, 3));
+        assertEquals(-1, index.get(2.0, 2));
+        assertEquals(-1, index.putIfAbsent(1.0, 3, 1));
+        assertEquals(-1, index.putIfAbsent(2.0, 2, 2));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void quantizesNearlyEqualBeats() {
+        NoteIndex index = new NoteIndex(4);
+        index.putIfAbsent(1.0 / 3.0, 0, 0);
+        // 浮点误差远小于半个刻度，视为同一拍
+        assertEquals(0, index.get(0.1 + 0.1 + 0.1 + 1.0 / 30.0, 0));
+        assertEquals(0, index.putIfAbsent(1.0 / 3.0 + 1e-6, 0, 1));
+        // 相差一个刻度即为不同的拍
+        assertEquals(-1, index.get(1.0 / 3.0 + 1.0 / NoteIndex.BEAT_RESOLUTION, 0));
+    }
+
+    @Test
+    public void negativeBeatsAndLanesAreDistinct() {
+        NoteIndex index = new NoteIndex(8);
+        assertEquals(-1, index.putIfAbsent(-1.5, 0, 0));
+        assertEquals(-1, index.putIfAbsent(1.5, 0, 1));
+        assertEquals(-1, index.putIfAbsent(0, -1, 2));
+        assertEquals(-1, index.putIfAbsent(0, 1, 3));
+        assertEquals(-1, index.putIfAbsent(-1.5, -3, 4));
+        assertEquals(0, index.get(-1.5, 0));
+        assertEquals(1, index.get(1.5, 0));
+        assertEquals(2, index.get(0, -1));
+        assertEquals(3, index.get(0, 1));
+        assertEquals(4, index.get(-1.5, -3));
+        assertEquals(-1, index.get(-1.5, 3));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void rehashKeepsEveryNote() {
+        // 预计数远小于实际数，插入过程中多次扩容
+        NoteIndex index = new NoteIndex(1);
+        int note = 0;
+        for (int tick = -200; tick < 200; tick++) {
+            for (int lane = -3; lane <= 3; lane++) {
+                assertEquals(-1, index.putIfAbsent(tick * 0.25, lane, note++));
+            }
+        }
+        assertEquals(note, index.size());
+        note = 0;
+        for (int tick = -200; tick < 200; tick++) {
+            for (int lane = -3; lane <= 3; lane++) {
+                assertEquals(note, index.get(tick * 0.25, lane));
+                assertEquals(note, index.putIfAbsent(tick * 0.25, lane, -5));
+                note++;
+            }
+        }
+        assertEquals(-1, index.get(0.125, 0));
+        assertEquals(note, index.size());
+    }
+}
@@ -0,0 +1,175 @@
+package com.note.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.note.NoteTranslator;
+import com.note.TranslateOptions;
+import com.note.chart.ChartDiff;
+import com.note.chart.ChartEntity;
+import com.note.chart.DevChart;
+import com.note.chart.DevChartReader;
+import com.note.util.ArchiveUtil.ArchiveType;
+import com.note.util.ArchiveUtil.ArchiveWriter;
+import com.note.util.NoteLogUtil.LogLevel;
+
+/**
+ * 谱面包：条目路径安全检查、跳过__MACOSX和非谱面条目、zip/tar.gz往返转译
+ */
+public class ArchiveUtilTest {
+    private static final TranslateOptions OPTIONS = TranslateOptions.DEFAULTS.withLogLevel(LogLevel.OFF);
+    private static final byte[] CHART = ("{\"entities\":["
+            + "{\"archetype\":\"#BPM_CHANGE\",\"data\":[{\"name\":\"#BEAT\",\"value\":0},{\"name\":\"#BPM\",\"value\":120}]},"
+            + "{\"archetype\":\"TapNote\",\"name\":\"1\",\"data\":[{\"name\":\"#BEAT\",\"value\":1},{\"name\":\"lane\",\"value\":-2}]}"
+            + "]}").getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final NoteTranslator translator = new NoteTranslator(LogLevel.OFF);
+
+    @After
+    public void tearDown() {
+        translator.close();
+    }
+
+    @Test
+    public void safeEntryNames() {
+        assertTrue(ArchiveUtil.isSafeEntryName("level.json"));
+        assertTrue(ArchiveUtil.isSafeEntryName("pack/level.json"));
+        assertTrue(ArchiveUtil.isSafeEntryName("pack\\level.json"));
+        assertTrue(ArchiveUtil.isSafeEntryName("pack/..level.json"));
+    }
+
+    @Test
+    public void unsafeEntryNames() {
+        assertFalse(ArchiveUtil.isSafeEntryName(""));
+        assertFalse(ArchiveUtil.isSafeEntryName("../x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("pack/../../x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("..\\x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("pack\\..\\x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("/etc/x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("\\x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("C:\\x.json"));
+        assertFalse(ArchiveUtil.isSafeEntryName("C:x.json"));
+    }
+
+    @Test
+    public void archiveTypeByName() {
+        assertEquals(ArchiveType.ZIP, ArchiveType.of("pack.ZIP"));
+        assertEquals(ArchiveType.TAR_GZ, ArchiveType.of("pack.tar.gz"));
+        assertEquals(ArchiveType.TAR_GZ, ArchiveType.of("pack.tgz"));
+        assertNull(ArchiveType.of("level.json.gz"));
+        assertNull(ArchiveType.of("level.json"));
+    }
+
+    @Test
+    public void zipRoundTrip() throws Exception {
+        roundTrip("zip");
+    }
+
+    @Test
+    public void tarGzRoundTrip() throws Exception {
+        roundTrip("tar.gz");
+    }
+
+    @Test
+    public void unsafeEntriesFailWithoutWriting() throws Exception {
+        File input = archive("unsafe.zip", Map.of(
+                "../x.json", CHART,
+                "/abs.json", CHART,
+                "..\\y.json", CHART,
+                "ok.json", CHART));
+        File output = new File(folder.getRoot(), "out.zip");
+        assertEquals(3, translator.translateBatch(input, output, 1, false, OPTIONS));
+        assertEquals(Set.of("ok.json"), entries(output).keySet());
+        assertFalse(new File(folder.getRoot().getParentFile(), "x.json").exists());
+    }
+
+    // ------------------------------ 辅助：已编译谱面包 → 开发态谱面包 → 已编译谱面包，条目名称和内容都还原（多线程时条目顺序不固定） ------------------------------
+    private void roundTrip(String extension) throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("pack/", new byte[0]);
+        contents.put("pack/a.json", CHART);
+        contents.put("pack/b.json.gz", gzip(CHART));
+        contents.put("pack/level", gzip(CHART));
+        // 以下条目不是谱面，应被跳过（按谱面解析会失败）
+        contents.put("pack/readme", "not a chart".getBytes(StandardCharsets.UTF_8));
+        contents.put("pack/cover.png", new byte[]{1, 2, 3});
+        contents.put("pack/inner.tar.gz", gzip(new byte[]{1, 2, 3}));
+        contents.put("__MACOSX/pack/._a.json", new byte[]{0, 5, 22, 7});
+        File input = archive("in." + extension, contents);
+
+        File dev = new File(folder.getRoot(), "dev." + extension);
+        assertEquals(0, translator.translateBatch(input, dev, 2, false, OPTIONS));
+        Map<String, byte[]> devEntries = entries(dev);
+        assertEquals(Set.of("pack/a.json", "pack/b.json", "pack/level.json"), devEntries.keySet());
+
+        File compiled = new File(folder.getRoot(), "compiled." + extension);
+        assertEquals(0, translator.translateBatch(dev, compiled, 2, false,
+                OPTIONS.withDirection(TranslateOptions.Direction.FORWARD)));
+        Map<String, byte[]> compiledEntries = entries(compiled);
+        assertEquals(devEntries.keySet(), compiledEntries.keySet());
+
+        DevChart expected = translate(CHART);
+        for (String name : devEntries.keySet()) {
+            DevChart devChart = new DevChartReader().read(new ByteArrayInputStream(devEntries.get(name)));
+            assertTrue(name, new ChartDiff().diff(expected, devChart).isEmpty());
+            assertTrue(name, new ChartDiff().diff(expected, translate(compiledEntries.get(name))).isEmpty());
+        }
+    }
+
+    private DevChart translate(byte[] chart) throws IOException {
+        List<ChartEntity> entities = translator.readEntities(new ByteArrayInputStream(chart));
+        return translator.translateEntities(entities, OPTIONS);
+    }
+
+    private File archive(String name, Map<String, byte[]> contents) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        try (ArchiveWriter writer = ArchiveUtil.openWriter(file)) {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                writer.writeEntry(entry.getKey(), out -> out.write(entry.getValue()));
+            }
+        }
+        return file;
+    }
+
+    private static Map<String, byte[]> entries(File archive) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ArchiveInputStream<? extends ArchiveEntry> in = ArchiveUtil.openReader(archive)) {
+            ArchiveEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
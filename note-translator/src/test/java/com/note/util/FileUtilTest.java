@@ -0,0 +1,56 @@
+package com.note.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 谱面文件识别：.json、.json.gz、无后缀gzip算谱面，谱面包和其他.gz不算
+ */
+public class FileUtilTest {
+    private static final byte[] GZIP_MAGIC = {0x1F, (byte) 0x8B, 0x08, 0x00};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recognizesChartFiles() throws IOException {
+        assertTrue(FileUtil.isChartFile(file("level.json", new byte[]{'{', '}'})));
+        assertTrue(FileUtil.isChartFile(file("Level.JSON.GZ", GZIP_MAGIC)));
+        assertTrue(FileUtil.isChartFile(file("level", GZIP_MAGIC)));
+    }
+
+    @Test
+    public void rejectsArchivesAndOtherFiles() throws IOException {
+        assertFalse(FileUtil.isChartFile(file("pack.tar.gz", GZIP_MAGIC)));
+        assertFalse(FileUtil.isChartFile(file("pack.tgz", GZIP_MAGIC)));
+        assertFalse(FileUtil.isChartFile(file("pack.zip", new byte[]{'P', 'K'})));
+        assertFalse(FileUtil.isChartFile(file("notes.gz", GZIP_MAGIC)));
+        assertFalse(FileUtil.isChartFile(file("readme", new byte[]{'#'})));
+        assertFalse(FileUtil.isChartFile(folder.newFolder("charts.json")));
+    }
+
+    @Test
+    public void recognizesChartEntryNames() {
+        assertTrue(FileUtil.isChartName("pack/level.json"));
+        assertTrue(FileUtil.isChartName("pack\\level.json.gz"));
+        assertTrue(FileUtil.isChartName("pack.v2/level"));
+        assertFalse(FileUtil.isChartName("pack/inner.tar.gz"));
+        assertFalse(FileUtil.isChartName("pack/inner.tgz"));
+        assertFalse(FileUtil.isChartName("pack/cover.png.gz"));
+    }
+
+    // ------------------------------ 辅助：临时文件 ------------------------------
+    private File file(String name, byte[] content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+}
@@ -0,0 +1,104 @@
+package com.note.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 增量清单：哈希/参数/输出文件任一变化即失效、损坏时回退为空清单、保存时去掉已删除的输入
+ */
+public class TranslateManifestTest {
+    private static final String HASH = TranslateManifest.hash(ByteBuffer.wrap("chart".getBytes(StandardCharsets.UTF_8)));
+    private static final String SETTINGS = "format=1;lane=3";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        output = folder.newFolder("output");
+        Files.writeString(new File(output, "a.json").toPath(), "[]");
+        Files.writeString(new File(output, "b.json").toPath(), "[]");
+    }
+
+    @Test
+    public void savedEntryIsUpToDateAfterReload() throws IOException {
+        TranslateManifest manifest = TranslateManifest.load(output);
+        manifest.record("a.json.gz", HASH, SETTINGS, "a.json", 12);
+        manifest.save(Set.of("a.json.gz"));
+
+        TranslateManifest.Entry entry = TranslateManifest.load(output).findUpToDate("a.json.gz", HASH, SETTINGS, output);
+        assertNotNull(entry);
+        assertEquals("a.json", entry.output);
+        assertEquals(12, entry.entityCount);
+    }
+
+    @Test
+    public void changedHashOrSettingsIsNotUpToDate() {
+        TranslateManifest manifest = TranslateManifest.load(output);
+        manifest.record("a.json", HASH, SETTINGS, "a.json", 1);
+        String otherHash = TranslateManifest.hash(ByteBuffer.wrap("chart2".getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(HASH, otherHash);
+        assertNull(manifest.findUpToDate("a.json", otherHash, SETTINGS, output));
+        assertNull(manifest.findUpToDate("a.json", HASH, "format=1;lane=2", output));
+        assertNull(manifest.findUpToDate("b.json", HASH, SETTINGS, output));
+        assertNotNull(manifest.findUpToDate("a.json", HASH, SETTINGS, output));
+    }
+
+    @Test
+    public void missingOutputIsNotUpToDate() throws IOException {
+        TranslateManifest manifest = TranslateManifest.load(output);
+        manifest.record("a.json", HASH, SETTINGS, "a.json", 1);
+        Files.delete(new File(output, "a.json").toPath());
+        assertNull(manifest.findUpToDate("a.json", HASH, SETTINGS, output));
+    }
+
+    @Test
+    public void corruptedManifestFallsBackToEmpty() throws IOException {
+        Files.writeString(new File(output, TranslateManifest.FILE_NAME).toPath(), "{\"a.json\": {\"hash\": ");
+        TranslateManifest manifest = TranslateManifest.load(output);
+        assertNull(manifest.findUpToDate("a.json", HASH, SETTINGS, output));
+
+        // 损坏的清单在下次保存时被覆盖
+        manifest.record("a.json", HASH, SETTINGS, "a.json", 1);
+        manifest.save(Set.of("a.json"));
+        assertNotNull(TranslateManifest.load(output).findUpToDate("a.json", HASH, SETTINGS, output));
+    }
+
+    @Test
+    public void saveDropsRemovedInputs() throws IOException {
+        TranslateManifest manifest = TranslateManifest.load(output);
+        manifest.record("a.json", HASH, SETTINGS, "a.json", 1);
+        manifest.record("b.json", HASH, SETTINGS, "b.json", 1);
+        manifest.save(Set.of("a.json"));
+
+        TranslateManifest reloaded = TranslateManifest.load(output);
+        assertNotNull(reloaded.findUpToDate("a.json", HASH, SETTINGS, output));
+        assertNull(reloaded.findUpToDate("b.json", HASH, SETTINGS, output));
+    }
+
+    @Test
+    public void hashIsStableAndIgnoresBufferPosition() {
+        ByteBuffer contents = ByteBuffer.wrap("chart".getBytes(StandardCharsets.UTF_8));
+        assertEquals(HASH, TranslateManifest.hash(contents));
+        // 哈希不移动调用方缓冲区的读取位置
+        assertEquals(0, contents.position());
+        assertEquals(HASH, TranslateManifest.hash(contents));
+        assertEquals(64, HASH.length());
+    }
+}